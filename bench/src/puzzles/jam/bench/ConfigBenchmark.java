@@ -0,0 +1,96 @@
+package puzzles.jam.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import puzzles.common.solver.Configuration;
+import puzzles.jam.model.JamConfig;
+
+import java.io.FileNotFoundException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per state of the operations a search repeats for every config:
+ * generating neighbors, hashing, equality and key packing.
+ * Run with -prof gc to get the bytes allocated per expanded state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigBenchmark {
+    /** configs sampled from each puzzle */
+    private final static int SAMPLE = 4096;
+
+    /** number of the puzzle in data/jam */
+    @Param({"6", "10", "11"})
+    public String puzzle;
+
+    /** sampled configs */
+    private JamConfig[] states;
+
+    /** an equal but separate copy of each sampled config */
+    private JamConfig[] copies;
+
+    /** scratch space for packed keys */
+    private long[] key;
+
+    /** index of the next sampled config */
+    private int next;
+
+    @Setup
+    public void load() throws FileNotFoundException {
+        states = JamBench.sample(JamBench.load(puzzle), SAMPLE);
+        copies = new JamConfig[states.length];
+        for (int i = 0; i < states.length; ++i)
+            copies[i] = new JamConfig(states[i]);
+        key = new long[states[0].keyLength()];
+    }
+
+    /**
+     * @return index of the next sampled config, cycling through them
+     */
+    private int next() {
+        next = next + 1 == states.length ? 0 : next + 1;
+        return next;
+    }
+
+    @Benchmark
+    public Collection<Configuration> getNeighbors() {
+        return states[next()].getNeighbors();
+    }
+
+    @Benchmark
+    public boolean forEachNeighbor(Blackhole blackhole) {
+        return states[next()].forEachNeighbor(child -> {
+            blackhole.consume(child);
+            return true;
+        });
+    }
+
+    @Benchmark
+    public int hash() {
+        return states[next()].hashCode();
+    }
+
+    @Benchmark
+    public boolean equal() {
+        int i = next();
+        return states[i].equals(copies[i]);
+    }
+
+    @Benchmark
+    public long[] packKey() {
+        states[next()].writeKey(key, 0);
+        return key;
+    }
+
+    @Benchmark
+    public Configuration unpackKey() {
+        JamConfig state = states[next()];
+        state.writeKey(key, 0);
+        return state.readKey(key, 0);
+    }
+}
@@ -0,0 +1,73 @@
+package puzzles.jam.bench;
+
+import puzzles.common.solver.AStarSolver;
+import puzzles.common.solver.Solver;
+import puzzles.jam.solver.BlockerChainHeuristic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Solves every puzzle in data/jam with each solver and checks the moves
+ * and expanded-config counts against a recorded baseline, so a change
+ * that makes a search do more work, or find a longer path, is caught.
+ * Needs no JMH; exits with status 1 on any difference.
+ *
+ * Usage: java ExpansionRegression [-record] [baseline]
+ */
+public class ExpansionRegression {
+    /** number of puzzles in data/jam */
+    private final static int PUZZLES = 12;
+
+    public static void main(String[] args) throws IOException {
+        boolean record = args.length > 0 && args[0].equals("-record");
+        Path baseline = Path.of(args.length > (record ? 1 : 0) ? args[args.length - 1] : "bench/baseline.txt");
+
+        List<String> results = new ArrayList<>();
+        for (int i = 0; i < PUZZLES; ++i) {
+            String puzzle = String.valueOf(i);
+            results.add(line(puzzle, "bfs", new Solver()));
+            results.add(line(puzzle, "astar", new AStarSolver(new BlockerChainHeuristic())));
+        }
+
+        if (record) {
+            Files.write(baseline, results);
+            System.out.println("Recorded: " + baseline);
+            return;
+        }
+
+        List<String> expected = Files.readAllLines(baseline);
+        int failures = 0;
+        for (int i = 0; i < results.size(); ++i) {
+            String want = i < expected.size() ? expected.get(i) : "";
+            if (!results.get(i).equals(want)) {
+                System.out.println("Expected: " + want);
+                System.out.println("     Got: " + results.get(i));
+                failures++;
+            }
+        }
+        if (expected.size() != results.size())
+            failures++;
+        System.out.println(failures == 0 ? "Baseline matched" : failures + " difference(s) from " + baseline);
+        if (failures != 0)
+            System.exit(1);
+    }
+
+    /**
+     * Solves a puzzle and formats what it took
+     *
+     * @param puzzle number of the puzzle
+     * @param name name of the solver
+     * @param solver the solver
+     * @return result line
+     * @throws IOException if the puzzle cannot be read
+     */
+    private static String line(String puzzle, String name, Solver solver) throws IOException {
+        int steps = solver.solve(JamBench.load(puzzle)).size();
+        return "jam-" + puzzle + " " + name + " moves=" + (steps - 1)
+                + " total=" + solver.totalCounter + " unique=" + solver.uniqueCounter;
+    }
+}
@@ -0,0 +1,62 @@
+package puzzles.jam.bench;
+
+import puzzles.jam.model.JamConfig;
+
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Puzzle loading shared by the benchmarks
+ */
+final class JamBench {
+    /** directory of the jam-N.txt puzzles; run from the repository root or set -Djam.data */
+    final static String DATA = System.getProperty("jam.data", "data/jam");
+
+    private JamBench(){
+    }
+
+    /**
+     * @param puzzle number of the puzzle
+     * @return its filename
+     */
+    static String file(String puzzle){
+        return DATA + "/jam-" + puzzle + ".txt";
+    }
+
+    /**
+     * Loads a puzzle
+     *
+     * @param puzzle number of the puzzle
+     * @return its start config
+     * @throws FileNotFoundException if file not found
+     */
+    static JamConfig load(String puzzle) throws FileNotFoundException {
+        return new JamConfig(file(puzzle));
+    }
+
+    /**
+     * Collects up to size configs in breadth first order from a start,
+     * so per-state benchmarks see a realistic mix of boards
+     *
+     * @param start the start config
+     * @param size most configs to collect
+     * @return the configs
+     */
+    static JamConfig[] sample(JamConfig start, int size){
+        List<JamConfig> states = new ArrayList<>();
+        Set<JamConfig> seen = new HashSet<>();
+        states.add(start);
+        seen.add(start);
+        for (int next = 0; next < states.size() && states.size() < size; ++next) {
+            states.get(next).forEachNeighbor(child -> {
+                if (states.size() < size && seen.add((JamConfig) child))
+                    states.add((JamConfig) child);
+                return true;
+            });
+        }
+        return states.toArray(new JamConfig[0]);
+    }
+}
@@ -0,0 +1,46 @@
+package puzzles.jam.bench;
+
+import org.openjdk.jmh.annotations.*;
+import puzzles.common.solver.AStarSolver;
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Solver;
+import puzzles.jam.model.JamConfig;
+import puzzles.jam.solver.BlockerChainHeuristic;
+
+import java.io.FileNotFoundException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end solve throughput and latency for every puzzle in data/jam.
+ * Run with -prof gc to also get the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark {
+    /** number of the puzzle in data/jam */
+    @Param({"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11"})
+    public String puzzle;
+
+    /** start config of the puzzle */
+    private JamConfig start;
+
+    @Setup
+    public void load() throws FileNotFoundException {
+        start = JamBench.load(puzzle);
+    }
+
+    @Benchmark
+    public Collection<Configuration> bfs() {
+        return new Solver().solve(start);
+    }
+
+    @Benchmark
+    public Collection<Configuration> astar() {
+        return new AStarSolver(new BlockerChainHeuristic()).solve(start);
+    }
+}
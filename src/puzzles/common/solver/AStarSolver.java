@@ -0,0 +1,148 @@
+package puzzles.common.solver;
+
+import java.util.*;
+
+/**
+ * Best first search ordered by moves so far plus a Heuristic estimate.
+ * With an admissible heuristic the returned path is a shortest one,
+ * while far fewer configs are expanded than breadth first search needs.
+ */
+public class AStarSolver extends Solver {
+    /** estimate of the moves left from a config */
+    private final Heuristic heuristic;
+
+    /**
+     * Constructor
+     *
+     * @param heuristic admissible estimate of the moves left
+     */
+    public AStarSolver(Heuristic heuristic){
+        super();
+        this.heuristic = heuristic;
+    }
+
+    // find shortest path
+    @Override
+    protected Collection<Configuration> search(Configuration config) {
+        // every config seen, with the cheapest known path to it
+        Entries seen = new Entries();
+        seen.add(config, 0, StateArena.NONE);
+
+        // queue of ids to process, cheapest estimate first and the
+        // deepest config first among equal estimates
+        BucketFrontier queue = new BucketFrontier();
+        queue.add(0, priority(heuristic.estimate(config), 0));
+
+        // a layer is every config expanded under the same estimate
+        metrics.start(totalCounter);
+        int bound = estimateOf(queue.priority());
+        long frontier = 1;
+        long expanded = 0;
+        int finalId = StateArena.NONE;
+
+        // process queue
+        while (!queue.isEmpty()) {
+            checkLimits(seen.size(), -1);
+            int estimate = estimateOf(queue.priority());
+            int id = queue.poll();
+
+            // skip entries of a config already expanded at its cheapest
+            // known cost; a cheaper entry always comes out first
+            if (seen.closed[id] <= seen.costs[id])
+                continue;
+
+            if (estimate > bound) {
+                metrics.layer(bound, frontier, expanded, totalCounter, seen.size(), -1);
+                bound = estimate;
+                frontier = queue.size() + 1;
+            }
+
+            // check if solution
+            Configuration current = seen.configs.get(id);
+            if (current.isSolution()) {
+                finalId = id;
+                break;
+            }
+
+            // go through neighbors; a config is reopened when a cheaper
+            // path to it turns up, so an inconsistent heuristic still
+            // gives a shortest path
+            expanded++;
+            seen.closed[id] = seen.costs[id];
+            int cost = seen.costs[id] + 1;
+            current.forEachNeighbor(child -> {
+                this.totalCounter++;
+                Integer known = seen.ids.get(child);
+                if (known == null) {
+                    queue.add(seen.add(child, cost, id), priority(cost + heuristic.estimate(child), cost));
+                } else if (cost < seen.costs[known]) {
+                    seen.costs[known] = cost;
+                    seen.parents[known] = id;
+                    queue.add(known, priority(cost + heuristic.estimate(child), cost));
+                }
+                return true;
+            });
+        }
+
+        // construct path
+        List<Configuration> path = new ArrayList<>();
+        for (int id = finalId; id != StateArena.NONE; id = seen.parents[id])
+            path.add(seen.configs.get(id));
+        Collections.reverse(path);
+
+        uniqueCounter = seen.size();
+        metrics.layer(bound, frontier, expanded, totalCounter, uniqueCounter, -1);
+        metrics.finish(finalId != StateArena.NONE, expanded, totalCounter, uniqueCounter, -1);
+        return path;
+    }
+
+    // bucket of an estimate and a cost; estimate f takes the f + 1
+    // buckets after those of f - 1, the deepest cost first, so the
+    // buckets keep lowest estimate first and deepest first on ties
+    private static int priority(int estimate, int cost) {
+        return estimate * (estimate + 1) / 2 + estimate - cost;
+    }
+
+    // estimate of a bucket
+    private static int estimateOf(int priority) {
+        int estimate = (int) ((Math.sqrt(8.0 * priority + 1) - 1) / 2);
+        while (priority(estimate + 1, estimate + 1) <= priority)
+            estimate++;
+        while (priority(estimate, estimate) > priority)
+            estimate--;
+        return estimate;
+    }
+
+    /**
+     * Every config seen, by id in the order they were found, with the
+     * cheapest known path to each
+     */
+    private static class Entries {
+        private final List<Configuration> configs = new ArrayList<>();
+        private final Map<Configuration, Integer> ids = new HashMap<>();
+        private int[] costs = new int[1024];
+        private int[] parents = new int[1024];
+
+        // cost a config was last expanded at; MAX_VALUE until it is
+        private int[] closed = new int[1024];
+
+        int add(Configuration config, int cost, int parent) {
+            int id = configs.size();
+            if (id == costs.length) {
+                costs = Arrays.copyOf(costs, id * 2);
+                parents = Arrays.copyOf(parents, id * 2);
+                closed = Arrays.copyOf(closed, id * 2);
+            }
+            configs.add(config);
+            ids.put(config, id);
+            costs[id] = cost;
+            parents[id] = parent;
+            closed[id] = Integer.MAX_VALUE;
+            return id;
+        }
+
+        int size() {
+            return configs.size();
+        }
+    }
+}
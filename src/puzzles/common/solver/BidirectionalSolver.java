@@ -0,0 +1,160 @@
+package puzzles.common.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Breadth first search from the start and from every goal at once,
+ * which works because every move can be undone, so the neighbors of a
+ * config are also the configs it can be reached from. Each round the
+ * side with the smaller frontier expands one whole layer; a neighbor
+ * the other side has already seen joins the two into a path. The
+ * shortest join found in the first layer that has one is a shortest
+ * path, as any shorter one would have joined in an earlier layer.
+ *
+ * Two searches of half the depth see far fewer configs than one of the
+ * whole depth when the number of configs grows quickly with depth. That
+ * only pays off when a puzzle has few goals: every goal is visited
+ * before the first layer, and a puzzle with many solved configs can
+ * have more of them than a forward search visits in all. The goals are
+ * streamed into the search under its budget, so such a puzzle stops
+ * with the budget rather than running out of memory.
+ */
+public class BidirectionalSolver extends Solver {
+    /**
+     * Hands each goal of the puzzle of a start to a visitor, stopping as
+     * soon as the visitor returns false
+     */
+    public interface Goals {
+        boolean forEach(Configuration start, Predicate<Configuration> visitor);
+    }
+
+    // visits the goals of a puzzle from its start
+    private final Goals goals;
+
+    public BidirectionalSolver(Goals goals) {
+        super();
+        this.goals = goals;
+    }
+
+    // find shortest path
+    @Override
+    protected Collection<Configuration> search(Configuration config) {
+        if (!(config instanceof PackedConfiguration))
+            throw new IllegalArgumentException("Bidirectional search needs a PackedConfiguration");
+        PackedConfiguration start = (PackedConfiguration) config;
+        long[] key = new long[start.keyLength()];
+
+        // each side starts with one layer
+        metrics.start(totalCounter);
+        Side forward = new Side(start.keyLength());
+        start.writeKey(key, 0);
+        forward.arena.add(key, 0, StateArena.NONE);
+        forward.nextLayer();
+        Side backward = new Side(start.keyLength());
+        goals.forEach(start, goal -> {
+            checkLimits(forward.arena.size() + backward.arena.size(), forward.bytes() + backward.bytes());
+            ((PackedConfiguration) goal).writeKey(key, 0);
+            backward.arena.add(key, 0, StateArena.NONE);
+            return true;
+        });
+        backward.nextLayer();
+
+        long expanded = 0;
+        int round = 0;
+        List<Configuration> path = new ArrayList<>();
+        if (start.isSolution())
+            path.add(start);
+
+        while (path.isEmpty() && forward.frontier() > 0 && backward.frontier() > 0) {
+            Side from = forward.frontier() <= backward.frontier() ? forward : backward;
+            Side to = from == forward ? backward : forward;
+            long frontier = from.frontier();
+
+            // expand the layer, keeping the shortest join
+            int[] join = { StateArena.NONE, StateArena.NONE, Integer.MAX_VALUE };
+            for (int id = from.layerStart; id < from.layerEnd; ++id) {
+                checkLimits(forward.arena.size() + backward.arena.size(), forward.bytes() + backward.bytes());
+                expanded++;
+                int parent = id;
+                int length = from.depth(id) + 1;
+                from.arena.get(start, id).forEachNeighbor(child -> {
+                    this.totalCounter++;
+                    ((PackedConfiguration) child).writeKey(key, 0);
+                    int other = to.arena.find(key, 0);
+                    if (other != StateArena.NONE && length + to.depth(other) < join[2]) {
+                        join[0] = parent;
+                        join[1] = other;
+                        join[2] = length + to.depth(other);
+                    }
+                    from.arena.add(key, 0, parent);
+                    return true;
+                });
+            }
+            from.nextLayer();
+            metrics.layer(round++, frontier, expanded, totalCounter,
+                    forward.arena.size() + backward.arena.size(), forward.bytes() + backward.bytes());
+
+            // the start's half of the path, then the goal's half
+            if (join[0] != StateArena.NONE) {
+                int forwardId = from == forward ? join[0] : join[1];
+                int backwardId = from == forward ? join[1] : join[0];
+                for (int id = forwardId; id != StateArena.NONE; id = forward.arena.parent(id))
+                    path.add(forward.arena.get(start, id));
+                Collections.reverse(path);
+                for (int id = backwardId; id != StateArena.NONE; id = backward.arena.parent(id))
+                    path.add(backward.arena.get(start, id));
+            }
+        }
+
+        uniqueCounter = forward.arena.size() + backward.arena.size();
+        metrics.finish(!path.isEmpty(), expanded, totalCounter, uniqueCounter, forward.bytes() + backward.bytes());
+        return path;
+    }
+
+    /**
+     * The configs one direction has seen, in layers of consecutive ids
+     */
+    private static class Side {
+        private final StateArena arena;
+
+        // first id of each layer
+        private int[] layerStarts = new int[64];
+        private int layers;
+
+        // ids of the layer to expand next
+        private int layerStart;
+        private int layerEnd;
+
+        Side(int width) {
+            this.arena = new StateArena(width);
+        }
+
+        // the ids added since the last call become the next layer
+        void nextLayer() {
+            if (layers == layerStarts.length)
+                layerStarts = Arrays.copyOf(layerStarts, layers * 2);
+            layerStart = layerEnd;
+            layerEnd = arena.size();
+            layerStarts[layers++] = layerStart;
+        }
+
+        int frontier() {
+            return layerEnd - layerStart;
+        }
+
+        // moves from this side's roots to an id
+        int depth(int id) {
+            int layer = Arrays.binarySearch(layerStarts, 0, layers, id);
+            return layer >= 0 ? layer : -layer - 2;
+        }
+
+        long bytes() {
+            return arena.bytes() + (long) layerStarts.length * Integer.BYTES;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package puzzles.common.solver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Breadth first search that marks visited configs in a bitmap indexed by
+ * their Ranking instead of keeping them in a map, two bits per rank. A
+ * visited config holds its depth mod 3 plus one, which is enough to tell
+ * the layers apart because every move can be undone: a neighbor of layer
+ * d is in layer d - 1, d or d + 1. A third bit per rank marks the configs
+ * not yet expanded, so each layer is found by scanning the open bits for
+ * its code and there is no queue. The path is rebuilt from the solution
+ * back by stepping to a neighbor one layer closer to the start.
+ *
+ * Memory is fixed by the size of the ranking however few configs are
+ * reached, so this pays off when the reachable configs fill much of it.
+ */
+public class BitmapSolver extends Solver {
+    // cells of two bits in a word
+    private final static int CELLS_PER_WORD = 32;
+
+    // ranks per word of the open bits
+    private final static int OPEN_PER_WORD = 64;
+
+    // makes the ranking of a puzzle from its start
+    private final Function<Configuration, Ranking> rankings;
+
+    public BitmapSolver(Function<Configuration, Ranking> rankings) {
+        super();
+        this.rankings = rankings;
+    }
+
+    // find shortest path
+    @Override
+    protected Collection<Configuration> search(Configuration config) {
+        metrics.start(totalCounter);
+        Ranking ranking = rankings.apply(config);
+        long words = (ranking.size() + CELLS_PER_WORD - 1) / CELLS_PER_WORD;
+        long openWords = (ranking.size() + OPEN_PER_WORD - 1) / OPEN_PER_WORD;
+        long bytes = (words + openWords) * Long.BYTES;
+        if (words > Integer.MAX_VALUE - 8 || bytes > Math.min(getBudget().getMaxBytes(), Runtime.getRuntime().maxMemory())) {
+            metrics.skipStart();
+            exceeded(BudgetExceededException.Limit.MEMORY, bytes + " bytes needed for the bitmap", 0, bytes);
+        }
+        long[] bitmap = new long[(int) words];
+        long[] open = new long[(int) openWords];
+        long startRank = ranking.rank(config);
+        set(bitmap, startRank, code(0));
+        open[(int) (startRank / OPEN_PER_WORD)] |= 1L << startRank;
+
+        // visited[0] counts every marked config; found[0] is the solution
+        long[] visited = { 1 };
+        Configuration[] found = { config.isSolution() ? config : null };
+        long expanded = 0;
+
+        // expand layer after layer, catching a solution as soon as it is generated
+        int depth = 0;
+        long frontier = 1;
+        while (found[0] == null && frontier > 0) {
+            long layerVisited = visited[0];
+            long current = code(depth);
+            long next = code(depth + 1);
+            for (int w = 0; w < open.length && found[0] == null; ++w) {
+                for (long ranks = open[w]; ranks != 0 && found[0] == null; ranks &= ranks - 1) {
+                    long rank = (long) w * OPEN_PER_WORD + Long.numberOfTrailingZeros(ranks);
+                    if (get(bitmap, rank) != current)
+                        continue;
+                    checkLimits(visited[0], bytes);
+                    expanded++;
+                    open[w] &= ~(1L << rank);
+                    ranking.unrank(rank).forEachNeighbor(child -> {
+                        this.totalCounter++;
+                        long childRank = ranking.rank(child);
+                        if (get(bitmap, childRank) != 0)
+                            return true;
+                        set(bitmap, childRank, next);
+                        open[(int) (childRank / OPEN_PER_WORD)] |= 1L << childRank;
+                        visited[0]++;
+                        if (child.isSolution())
+                            found[0] = child;
+                        return found[0] == null;
+                    });
+                }
+            }
+            metrics.layer(depth++, frontier, expanded, totalCounter, visited[0], bytes);
+            frontier = visited[0] - layerVisited;
+        }
+
+        List<Configuration> path = found[0] == null ? new ArrayList<>() : tracePath(bitmap, ranking, found[0], depth);
+        uniqueCounter = (int) visited[0];
+        metrics.finish(!path.isEmpty(), expanded, totalCounter, uniqueCounter, bytes);
+        return path;
+    }
+
+    // walk back from the solution at depth, each time to a neighbor
+    // marked with the code of the layer before
+    private List<Configuration> tracePath(long[] bitmap, Ranking ranking, Configuration end, int depth) {
+        List<Configuration> path = new ArrayList<>(depth + 1);
+        path.add(end);
+        Configuration[] step = { end };
+        for (int d = depth; d > 0; --d) {
+            long previous = code(d - 1);
+            step[0].forEachNeighbor(child -> {
+                if (get(bitmap, ranking.rank(child)) != previous)
+                    return true;
+                step[0] = child;
+                return false;
+            });
+            path.add(step[0]);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    // code of a config at a depth; 0 is left for unvisited
+    private static long code(int depth) {
+        return depth % 3 + 1;
+    }
+
+    private static long get(long[] bitmap, long rank) {
+        return bitmap[(int) (rank / CELLS_PER_WORD)] >>> (2 * (rank % CELLS_PER_WORD)) & 3;
+    }
+
+    // only called on unvisited cells, so the code can be ORed in
+    private static void set(long[] bitmap, long rank, long code) {
+        bitmap[(int) (rank / CELLS_PER_WORD)] |= code << (2 * (rank % CELLS_PER_WORD));
+    }
+}
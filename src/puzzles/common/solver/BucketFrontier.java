@@ -0,0 +1,80 @@
+package puzzles.common.solver;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Lowest priority first frontier for best first search whose priorities
+ * are small integers, such as moves so far plus an estimate. There is a
+ * stack of ids per priority, so adding and polling take constant time
+ * instead of the log of the queue size. Within a priority the last id
+ * added comes out first; a search that wants the deepest configs first
+ * on ties has to build the depth into the priority, as AStarSolver does.
+ */
+public class BucketFrontier implements Frontier {
+    /** ids of each priority */
+    private int[][] buckets = new int[64][];
+
+    /** number of ids in each bucket */
+    private int[] sizes = new int[64];
+
+    /** no bucket below this one has ids */
+    private int lowest;
+
+    /** number of ids waiting */
+    private int size;
+
+    @Override
+    public void add(int id, int priority){
+        if (priority < 0)
+            throw new IllegalArgumentException("Negative priority: " + priority);
+        if (priority >= buckets.length) {
+            int length = Math.max(buckets.length * 2, priority + 1);
+            buckets = Arrays.copyOf(buckets, length);
+            sizes = Arrays.copyOf(sizes, length);
+        }
+        int[] bucket = buckets[priority];
+        if (bucket == null)
+            bucket = buckets[priority] = new int[256];
+        else if (sizes[priority] == bucket.length)
+            bucket = buckets[priority] = Arrays.copyOf(bucket, bucket.length * 2);
+        bucket[sizes[priority]++] = id;
+        lowest = Math.min(lowest, priority);
+        size++;
+    }
+
+    @Override
+    public int poll(){
+        if (size == 0)
+            throw new NoSuchElementException();
+        int priority = priority();
+        size--;
+        return buckets[priority][--sizes[priority]];
+    }
+
+    /**
+     * @return priority of the id poll returns next
+     * @throws NoSuchElementException if the frontier is empty
+     */
+    public int priority(){
+        if (size == 0)
+            throw new NoSuchElementException();
+        while (sizes[lowest] == 0)
+            lowest++;
+        return lowest;
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    @Override
+    public long bytes(){
+        long bytes = (long) sizes.length * Integer.BYTES;
+        for (int[] bucket : buckets)
+            if (bucket != null)
+                bytes += (long) bucket.length * Integer.BYTES;
+        return bytes;
+    }
+}
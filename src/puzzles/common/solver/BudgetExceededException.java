@@ -0,0 +1,48 @@
+package puzzles.common.solver;
+
+/**
+ * Thrown by Solver.solve when a search goes over its SearchBudget and
+ * there is no fallback solver to take over. The metrics hold what the
+ * search had done by then.
+ */
+public class BudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The limit a search went over
+     */
+    public enum Limit { STATES, MEMORY, TIME }
+
+    /** the limit that was hit */
+    private final Limit limit;
+
+    /** what the search did before it stopped */
+    private final SearchMetrics metrics;
+
+    /**
+     * Constructor
+     *
+     * @param limit the limit that was hit
+     * @param message what was over the limit
+     * @param metrics what the search did before it stopped
+     */
+    public BudgetExceededException(Limit limit, String message, SearchMetrics metrics){
+        super(message);
+        this.limit = limit;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the limit that was hit
+     */
+    public Limit getLimit(){
+        return limit;
+    }
+
+    /**
+     * @return what the search did before it stopped
+     */
+    public SearchMetrics getMetrics(){
+        return metrics;
+    }
+}
@@ -0,0 +1,105 @@
+package puzzles.common.solver;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * A snapshot of a packed breadth first search taken between two layers:
+ * the puzzle it solves, the arena of every config seen with its parent, how many of the last
+ * ids make up the next layer and the counters. It is streamed straight
+ * from the arena to a temporary file that then replaces the snapshot,
+ * so taking one holds no second copy of the search, and a crash while
+ * writing leaves the last snapshot whole.
+ */
+final class Checkpoint {
+    /** first int of a snapshot file */
+    private final static int MAGIC = 0x4A434B50;
+
+    /** every config seen and its parent */
+    final StateArena arena;
+
+    /** depth of the layer to expand next */
+    final int depth;
+
+    /** number of ids at the end of the arena that make up that layer */
+    final int frontier;
+
+    /** configs generated and expanded so far */
+    final int totalCounter;
+    final int expanded;
+
+    Checkpoint(StateArena arena, int depth, int frontier, int totalCounter, int expanded){
+        this.arena = arena;
+        this.depth = depth;
+        this.frontier = frontier;
+        this.totalCounter = totalCounter;
+        this.expanded = expanded;
+    }
+
+    /**
+     * Writes the snapshot of a search
+     *
+     * @param file the snapshot file
+     * @param puzzle text of the whole puzzle, which identifies the search
+     * @param startKey key of the start
+     * @throws IOException if the snapshot cannot be written
+     */
+    void write(Path file, String puzzle, long[] startKey) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream stream = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(puzzle);
+            out.writeInt(startKey.length);
+            for (long key : startKey)
+                out.writeLong(key);
+            out.writeInt(depth);
+            out.writeInt(frontier);
+            out.writeInt(totalCounter);
+            out.writeInt(expanded);
+            arena.write(out);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the snapshot of a search
+     *
+     * @param file the snapshot file
+     * @param puzzle text of the whole puzzle of the search
+     * @param startKey key of the start of the search
+     * @return the snapshot; null if there is no file
+     * @throws IOException if the file cannot be read or is not a
+     * snapshot of this search
+     */
+    static Checkpoint read(Path file, String puzzle, long[] startKey) throws IOException {
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a search checkpoint: " + file);
+            if (!in.readUTF().equals(puzzle))
+                throw new IOException("Checkpoint " + file + " is of another puzzle");
+            long[] key = new long[in.readInt()];
+            if (key.length != startKey.length)
+                throw new IOException("Checkpoint " + file + " is of another puzzle");
+            for (int i = 0; i < key.length; ++i)
+                key[i] = in.readLong();
+            if (!Arrays.equals(key, startKey))
+                throw new IOException("Checkpoint " + file + " is of another search");
+            int depth = in.readInt();
+            int frontier = in.readInt();
+            int totalCounter = in.readInt();
+            int expanded = in.readInt();
+            StateArena arena = StateArena.read(in);
+            if (frontier < 0 || frontier > arena.size() || arena.width() != key.length)
+                throw new IOException("Corrupt checkpoint: " + file);
+            return new Checkpoint(arena, depth, frontier, totalCounter, expanded);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
@@ -1,9 +1,24 @@
 package puzzles.common.solver;
 
 import java.util.Collection;
+import java.util.function.Predicate;
 
 public interface Configuration {
     public Collection<Configuration> getNeighbors();
 
+    /**
+     * Hands each neighbor to a visitor as it is generated, without
+     * collecting them first, and stops as soon as the visitor returns false
+     *
+     * @param visitor called with each neighbor; returns false to stop
+     * @return false if the visitor stopped early; true otherwise
+     */
+    public default boolean forEachNeighbor(Predicate<Configuration> visitor) {
+        for (Configuration child : getNeighbors())
+            if (!visitor.test(child))
+                return false;
+        return true;
+    }
+
     public boolean isSolution();
 }
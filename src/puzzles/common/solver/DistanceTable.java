@@ -0,0 +1,277 @@
+package puzzles.common.solver;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Distance to the nearest solution of every configuration reachable from
+ * a start. Built once by a breadth first search over the whole cluster
+ * followed by a breadth first search back out from every solution in it,
+ * which relies on every move being reversible. Afterwards the next move
+ * of a shortest path from any configuration in the cluster is a lookup.
+ *
+ * On disk the table is a header, the packed keys in sorted order and a
+ * char distance per key; a loaded table is memory-mapped.
+ */
+public class DistanceTable {
+    /** distance of a configuration no solution can be reached from */
+    public final static int UNSOLVABLE = Character.MAX_VALUE;
+
+    /** first int of a table file */
+    private final static int MAGIC = 0x4A444954;
+
+    /** bytes before the keys; keeps them 8-byte aligned */
+    private final static int HEADER = 16;
+
+    /** longs per key */
+    private final int width;
+
+    /** number of configurations */
+    private final int size;
+
+    /** keys in ascending order */
+    private final LongBuffer keys;
+
+    /** distance of the configuration with the key at the same index */
+    private final CharBuffer distances;
+
+    private DistanceTable(int width, int size, LongBuffer keys, CharBuffer distances){
+        this.width = width;
+        this.size = size;
+        this.keys = keys;
+        this.distances = distances;
+    }
+
+    /**
+     * Enumerates every configuration reachable from a start and finds
+     * how far each is from a solution
+     *
+     * @param start any configuration of the cluster
+     * @return the table
+     */
+    public static DistanceTable build(PackedConfiguration start){
+        int width = start.keyLength();
+        StateArena arena = new StateArena(width);
+        long[] key = new long[width];
+        start.writeKey(key, 0);
+        arena.add(key, 0, StateArena.NONE);
+
+        // whole cluster; the arena doubles as the queue
+        for (int next = 0; next < arena.size(); ++next) {
+            int parent = next;
+            arena.get(start, next).forEachNeighbor(child -> {
+                ((PackedConfiguration) child).writeKey(key, 0);
+                arena.add(key, 0, parent);
+                return true;
+            });
+        }
+
+        // backwards from every solution
+        int size = arena.size();
+        char[] distance = new char[size];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int id = 0; id < size; ++id) {
+            distance[id] = UNSOLVABLE;
+            if (arena.get(start, id).isSolution()) {
+                distance[id] = 0;
+                queue.add(id);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int id = queue.poll();
+            arena.get(start, id).forEachNeighbor(child -> {
+                ((PackedConfiguration) child).writeKey(key, 0);
+                int childId = arena.find(key, 0);
+                if (distance[childId] == UNSOLVABLE) {
+                    distance[childId] = (char) (distance[id] + 1);
+                    queue.add(childId);
+                }
+                return true;
+            });
+        }
+
+        // sort by key so lookups can binary search
+        long[] keys = new long[size * width];
+        for (int id = 0; id < size; ++id)
+            arena.copyKey(id, keys, id * width);
+        int[] order = sortedOrder(keys, width, size);
+        long[] sortedKeys = new long[size * width];
+        char[] sortedDistances = new char[size];
+        for (int i = 0; i < size; ++i) {
+            System.arraycopy(keys, order[i] * width, sortedKeys, i * width, width);
+            sortedDistances[i] = distance[order[i]];
+        }
+        return new DistanceTable(width, size, LongBuffer.wrap(sortedKeys), CharBuffer.wrap(sortedDistances));
+    }
+
+    /**
+     * Maps a table written by write
+     *
+     * @param file the table file
+     * @return the table
+     * @throws IOException if the file cannot be read or is not a table
+     */
+    public static DistanceTable load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC)
+                throw new IOException("Not a distance table: " + file);
+            int width = buffer.getInt(4);
+            int size = buffer.getInt(8);
+            long keyBytes = (long) size * width * Long.BYTES;
+            if (buffer.capacity() != HEADER + keyBytes + (long) size * Character.BYTES)
+                throw new IOException("Truncated distance table: " + file);
+
+            LongBuffer keys = buffer.position(HEADER).slice().asLongBuffer();
+            CharBuffer distances = buffer.position(HEADER + (int) keyBytes).slice().asCharBuffer();
+            return new DistanceTable(width, size, keys, distances);
+        }
+    }
+
+    /**
+     * Writes the table so it can be mapped by load. It is written to a
+     * temporary file that then replaces the table file, so an
+     * interrupted build leaves no half table behind.
+     *
+     * @param file the table file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            writeTo(temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void writeTo(Path file) throws IOException {
+        try (OutputStream stream = Files.newOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(MAGIC);
+            out.writeInt(width);
+            out.writeInt(size);
+            out.writeInt(0);
+            for (int i = 0; i < size * width; ++i)
+                out.writeLong(keys.get(i));
+            for (int i = 0; i < size; ++i)
+                out.writeChar(distances.get(i));
+        }
+    }
+
+    /**
+     * @return number of configurations in the table
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Looks up how far a configuration is from a solution
+     *
+     * @param config the configuration
+     * @return moves to the nearest solution; UNSOLVABLE if there is
+     * none; -1 if the configuration is not in the table
+     */
+    public int distance(PackedConfiguration config){
+        if (config.keyLength() != width)
+            return -1;
+        long[] key = new long[width];
+        config.writeKey(key, 0);
+
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(keys, mid * width, key, width);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return distances.get(mid);
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the next configuration on a shortest path to a solution
+     *
+     * @param config the configuration
+     * @return a neighbor one move closer to a solution; null if config
+     * is a solution, cannot reach one or is not in the table
+     */
+    public Configuration nextStep(PackedConfiguration config){
+        int distance = distance(config);
+        if (distance <= 0 || distance == UNSOLVABLE)
+            return null;
+        for (Configuration child : config.getNeighbors())
+            if (distance((PackedConfiguration) child) == distance - 1)
+                return child;
+        return null;
+    }
+
+    /**
+     * Compares the key at an index of a buffer with a key
+     */
+    private static int compare(LongBuffer keys, int index, long[] key, int width){
+        for (int i = 0; i < width; ++i) {
+            int cmp = Long.compare(keys.get(index + i), key[i]);
+            if (cmp != 0)
+                return cmp;
+        }
+        return 0;
+    }
+
+    /**
+     * Sorts key ids by key with a bottom-up merge sort on primitive arrays
+     *
+     * @param keys the keys, width longs per id
+     * @param width longs per key
+     * @param size number of keys
+     * @return ids in ascending key order
+     */
+    static int[] sortedOrder(long[] keys, int width, int size){
+        LongBuffer view = LongBuffer.wrap(keys);
+        int[] order = new int[size];
+        int[] merged = new int[size];
+        for (int i = 0; i < size; ++i)
+            order[i] = i;
+
+        long[] key = new long[width];
+        for (int run = 1; run < size; run *= 2) {
+            for (int low = 0; low < size; low += 2 * run) {
+                int mid = Math.min(low + run, size);
+                int high = Math.min(low + 2 * run, size);
+                int left = low;
+                int right = mid;
+                for (int out = low; out < high; ++out) {
+                    boolean takeLeft = right >= high;
+                    if (left < mid && !takeLeft) {
+                        System.arraycopy(keys, order[right] * width, key, 0, width);
+                        takeLeft = compare(view, order[left] * width, key, width) <= 0;
+                    }
+                    merged[out] = takeLeft ? order[left++] : order[right++];
+                }
+            }
+            int[] swap = order;
+            order = merged;
+            merged = swap;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,259 @@
+package puzzles.common.solver;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Breadth first search spread over worker processes, so the configs
+ * seen can outgrow one heap. Each worker owns the configs whose packed
+ * keys hash to it and sends every neighbor it generates to the owner,
+ * straight over a socket to that worker. This solver is the
+ * coordinator: it starts the workers on this machine, tells them to
+ * expand one layer at a time, adds up what they report and rebuilds
+ * the path by asking the owner of each config on it for its parent.
+ *
+ * Workers are started as java with the class path of this JVM running
+ * a main class that hands DistributedWorker.run a way to parse the
+ * puzzle the coordinator describes; see DistributedWorker. A JVM run
+ * from the module path has no class path to hand on, so it cannot
+ * start workers. While the coordinator waits on the workers it checks
+ * the time budget and cancel every POLL_MILLIS, and it gives up as
+ * soon as a worker dies.
+ */
+public class DistributedSolver extends Solver {
+    // commands from the coordinator to a worker
+    final static int EXPAND = 1;
+    final static int PARENT = 2;
+    final static int STOP = 3;
+
+    // how long workers get to start and connect
+    private final static int CONNECT_MILLIS = 60_000;
+
+    // how often a wait for the workers stops to check the budget
+    private final static int POLL_MILLIS = 250;
+
+    // number of worker processes
+    private final int workers;
+
+    // main class of a worker process
+    private final String workerMain;
+
+    // describes the puzzle of a start so a worker can parse it
+    private final Function<Configuration, String> describe;
+
+    public DistributedSolver(int workers, String workerMain, Function<Configuration, String> describe) {
+        super();
+        if (workers < 1)
+            throw new IllegalArgumentException("Need at least one worker: " + workers);
+        this.workers = workers;
+        this.workerMain = workerMain;
+        this.describe = describe;
+    }
+
+    // find shortest path
+    @Override
+    protected Collection<Configuration> search(Configuration config) {
+        if (!(config instanceof PackedConfiguration))
+            throw new IllegalArgumentException("Distributed search needs a PackedConfiguration");
+        PackedConfiguration start = (PackedConfiguration) config;
+        metrics.start(totalCounter);
+        if (start.isSolution()) {
+            uniqueCounter = 1;
+            metrics.finish(true, 0, totalCounter, 1, -1);
+            return new ArrayList<>(List.of(start));
+        }
+
+        String classPath = System.getProperty("java.class.path", "");
+        if (classPath.isEmpty())
+            throw new IllegalStateException("Workers need a class path; run from the class path, not the module path");
+
+        List<Process> processes = new ArrayList<>();
+        Socket[] sockets = new Socket[workers];
+        boolean finished = false;
+        try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            server.setSoTimeout(POLL_MILLIS);
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            for (int i = 0; i < workers; ++i)
+                processes.add(new ProcessBuilder(java, "-cp", classPath, workerMain,
+                        Integer.toString(server.getLocalPort())).inheritIO().start());
+            List<Configuration> path = search(start, server, sockets, processes);
+            finished = true;
+            return path;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            // workers of a search that failed or was stopped may be
+            // hung, so they are not waited for
+            for (Socket socket : sockets)
+                stop(socket);
+            long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            for (Process process : processes) {
+                try {
+                    if (!finished || !process.waitFor(giveUp - System.nanoTime(), TimeUnit.NANOSECONDS))
+                        process.destroyForcibly();
+                } catch (InterruptedException e) {
+                    process.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private List<Configuration> search(PackedConfiguration start, ServerSocket server, Socket[] sockets,
+                                       List<Process> processes) throws IOException {
+        // each worker tells where its peers reach it, then learns its
+        // index, everyone's port and the puzzle
+        DataInputStream[] in = new DataInputStream[workers];
+        DataOutputStream[] out = new DataOutputStream[workers];
+        int[] ports = new int[workers];
+        for (int i = 0; i < workers; ++i) {
+            sockets[i] = accept(server, processes);
+            in[i] = new DataInputStream(new BufferedInputStream(sockets[i].getInputStream()));
+            out[i] = new DataOutputStream(new BufferedOutputStream(sockets[i].getOutputStream()));
+            await(in[i], processes, 0, -1);
+            ports[i] = in[i].readInt();
+        }
+        String puzzle = describe.apply(start);
+        for (int i = 0; i < workers; ++i) {
+            out[i].writeInt(i);
+            out[i].writeInt(workers);
+            for (int port : ports)
+                out[i].writeInt(port);
+            out[i].writeUTF(puzzle);
+            out[i].flush();
+        }
+        long visited = 0;
+        for (int i = 0; i < workers; ++i) {
+            await(in[i], processes, 0, -1);
+            visited += in[i].readInt();
+        }
+
+        // one layer per round; every worker expands its share
+        int width = start.keyLength();
+        long[] found = null;
+        long frontier = 1;
+        long expanded = 0;
+        long bytes = 0;
+        for (int depth = 0; found == null && frontier > 0; ++depth) {
+            checkLimits(visited, bytes);
+            for (DataOutputStream worker : out) {
+                worker.writeInt(EXPAND);
+                worker.flush();
+            }
+            long added = 0;
+            bytes = 0;
+            for (DataInputStream worker : in) {
+                await(worker, processes, visited, bytes);
+                added += worker.readLong();
+                totalCounter += (int) worker.readLong();
+                bytes += worker.readLong();
+                if (worker.readBoolean()) {
+                    long[] keys = readKeys(worker, 2 * width);
+                    if (found == null)
+                        found = keys;
+                }
+            }
+            expanded += frontier;
+            visited += added;
+            metrics.layer(depth, frontier, expanded, totalCounter, visited, bytes);
+            frontier = added;
+        }
+
+        // the solution, then parents from their owners back to the start
+        List<Configuration> path = new ArrayList<>();
+        if (found != null) {
+            path.add(start.readKey(found, 0));
+            long[] key = Arrays.copyOfRange(found, width, 2 * width);
+            while (key != null) {
+                path.add(start.readKey(key, 0));
+                int owner = DistributedWorker.owner(key, width, workers);
+                out[owner].writeInt(PARENT);
+                writeKeys(out[owner], key);
+                out[owner].flush();
+                await(in[owner], processes, visited, bytes);
+                key = in[owner].readBoolean() ? readKeys(in[owner], width) : null;
+            }
+            Collections.reverse(path);
+        }
+
+        uniqueCounter = (int) visited;
+        metrics.finish(found != null, expanded, totalCounter, uniqueCounter, bytes);
+        return path;
+    }
+
+    // wait for the next worker to connect
+    private Socket accept(ServerSocket server, List<Process> processes) throws IOException {
+        long giveUp = System.nanoTime() + CONNECT_MILLIS * 1_000_000L;
+        while (true) {
+            try {
+                Socket socket = server.accept();
+                socket.setSoTimeout(POLL_MILLIS);
+                return socket;
+            } catch (SocketTimeoutException e) {
+                checkWorkers(processes, 0, -1);
+                if (System.nanoTime() - giveUp > 0)
+                    throw new IOException("Workers did not connect within " + CONNECT_MILLIS + " ms");
+            }
+        }
+    }
+
+    // wait until a worker's reply starts to arrive; the reply is then
+    // read whole, so a timeout never cuts a message in two
+    private void await(DataInputStream in, List<Process> processes, long visited, long bytes) throws IOException {
+        while (true) {
+            try {
+                in.mark(1);
+                if (in.read() < 0)
+                    throw new EOFException("Worker closed its connection");
+                in.reset();
+                return;
+            } catch (SocketTimeoutException e) {
+                checkWorkers(processes, visited, bytes);
+            }
+        }
+    }
+
+    // stop if the budget ran out, the search was cancelled or a worker died
+    private void checkWorkers(List<Process> processes, long visited, long bytes) throws IOException {
+        checkWaiting(visited, bytes);
+        for (Process process : processes)
+            if (!process.isAlive())
+                throw new IOException("Worker exited with status " + process.exitValue());
+    }
+
+    static long[] readKeys(DataInputStream in, int longs) throws IOException {
+        long[] keys = new long[longs];
+        for (int i = 0; i < longs; ++i)
+            keys[i] = in.readLong();
+        return keys;
+    }
+
+    static void writeKeys(DataOutputStream out, long[] keys) throws IOException {
+        for (long key : keys)
+            out.writeLong(key);
+    }
+
+    // tell a worker to exit; it may be gone already
+    private static void stop(Socket socket) {
+        if (socket == null)
+            return;
+        try (socket) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(STOP);
+            out.flush();
+        } catch (IOException e) {
+            // the worker has exited
+        }
+    }
+}
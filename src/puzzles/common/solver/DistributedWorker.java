@@ -0,0 +1,277 @@
+package puzzles.common.solver;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * A worker process of a DistributedSolver. It owns the configs whose
+ * keys hash to its index and keeps each one's key and its parent's key.
+ * Asked to expand a layer, it expands the configs it added in the last
+ * one, keeping the neighbors it owns and sending the rest in batches to
+ * their owners, while a thread per peer takes in what that peer sends.
+ * A peer ends its part of a layer with an empty batch marked -1.
+ *
+ * A puzzle supplies the main class, which calls run with the port the
+ * coordinator gave it and a way to parse the coordinator's description
+ * of the puzzle into its start.
+ */
+public class DistributedWorker {
+    // neighbors sent to a peer in one batch
+    private final static int BATCH_SIZE = 4096;
+
+    // batch length that ends a peer's part of a layer
+    private final static int END = -1;
+
+    // start of the puzzle, used to rebuild configs from keys
+    private final PackedConfiguration start;
+
+    // this worker's index and the number of workers
+    private final int index;
+    private final int workers;
+
+    // longs per key
+    private final int width;
+
+    // configs owned; an id's arena parent is NONE for the start and 0
+    // for any other config. Guarded by itself
+    private final StateArena arena;
+
+    // key of each id's parent, width longs per id
+    private long[] parents;
+
+    // ids added in the last layer, which the next one expands
+    private int layerStart;
+    private int layerEnd;
+
+    private final DataOutputStream[] toPeers;
+    private final DataInputStream[] fromPeers;
+
+    private DistributedWorker(PackedConfiguration start, int index, int workers,
+                              DataOutputStream[] toPeers, DataInputStream[] fromPeers) {
+        this.start = start;
+        this.index = index;
+        this.workers = workers;
+        this.width = start.keyLength();
+        this.arena = new StateArena(width);
+        this.parents = new long[1024 * width];
+        this.toPeers = toPeers;
+        this.fromPeers = fromPeers;
+    }
+
+    /**
+     * Serves a coordinator until it says to stop
+     *
+     * @param port port of the coordinator on this machine
+     * @param parse turns the coordinator's description of a puzzle into
+     *              its start
+     * @throws IOException if a connection fails
+     */
+    public static void run(int port, Function<String, PackedConfiguration> parse) throws IOException {
+        InetAddress host = InetAddress.getLoopbackAddress();
+        List<Closeable> open = new ArrayList<>();
+        try (Socket coordinator = new Socket(host, port);
+             ServerSocket server = new ServerSocket(0, 64, host)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(coordinator.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(coordinator.getOutputStream()));
+            out.writeInt(server.getLocalPort());
+            out.flush();
+
+            int index = in.readInt();
+            int workers = in.readInt();
+            int[] ports = new int[workers];
+            for (int i = 0; i < workers; ++i)
+                ports[i] = in.readInt();
+            PackedConfiguration start = parse.apply(in.readUTF());
+
+            // a connection to every peer for sending, then one from every
+            // peer for receiving; connecting does not wait for the accept
+            DataOutputStream[] toPeers = new DataOutputStream[workers];
+            DataInputStream[] fromPeers = new DataInputStream[workers];
+            for (int peer = 0; peer < workers; ++peer) {
+                if (peer == index)
+                    continue;
+                Socket socket = new Socket(host, ports[peer]);
+                open.add(socket);
+                toPeers[peer] = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                toPeers[peer].writeInt(index);
+                toPeers[peer].flush();
+            }
+            for (int i = 0; i < workers - 1; ++i) {
+                Socket socket = server.accept();
+                open.add(socket);
+                DataInputStream peerIn = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                fromPeers[peerIn.readInt()] = peerIn;
+            }
+
+            DistributedWorker worker = new DistributedWorker(start, index, workers, toPeers, fromPeers);
+            worker.serve(in, out);
+        } finally {
+            for (Closeable closeable : open) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    // closing anyway
+                }
+            }
+        }
+    }
+
+    /**
+     * Worker a key belongs to
+     *
+     * @param key the key
+     * @param width longs per key
+     * @param workers number of workers
+     * @return index of the owner
+     */
+    static int owner(long[] key, int width, int workers) {
+        long hash = 0;
+        for (int i = 0; i < width; ++i)
+            hash = (hash ^ key[i]) * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(hash ^ (hash >>> 32), (long) workers);
+    }
+
+    private void serve(DataInputStream in, DataOutputStream out) throws IOException {
+        // the owner of the start holds it as the first layer
+        long[] key = new long[width];
+        start.writeKey(key, 0);
+        if (owner(key, width, workers) == index)
+            add(key, 0, null, 0);
+        layerEnd = arena.size();
+        out.writeInt(arena.size());
+        out.flush();
+
+        ExecutorService readers = Executors.newFixedThreadPool(Math.max(1, workers - 1), runnable -> {
+            Thread thread = new Thread(runnable, "peer reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (true) {
+                int command = in.readInt();
+                if (command == DistributedSolver.EXPAND) {
+                    expand(readers, out);
+                } else if (command == DistributedSolver.PARENT) {
+                    long[] child = DistributedSolver.readKeys(in, width);
+                    int id;
+                    synchronized (arena) {
+                        id = arena.find(child, 0);
+                    }
+                    boolean hasParent = id >= 0 && arena.parent(id) != StateArena.NONE;
+                    out.writeBoolean(hasParent);
+                    if (hasParent)
+                        DistributedSolver.writeKeys(out, Arrays.copyOfRange(parents, id * width, (id + 1) * width));
+                    out.flush();
+                } else {
+                    return;
+                }
+            }
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+
+    // expand the last layer and report to the coordinator
+    private void expand(ExecutorService readers, DataOutputStream out) throws IOException {
+        int sizeBefore = arena.size();
+        List<Future<Void>> received = new ArrayList<>();
+        for (int peer = 0; peer < workers; ++peer) {
+            if (peer == index)
+                continue;
+            DataInputStream peerIn = fromPeers[peer];
+            received.add(readers.submit(() -> {
+                long[] batch = new long[BATCH_SIZE * 2 * width];
+                for (int count = peerIn.readInt(); count != END; count = peerIn.readInt()) {
+                    for (int i = 0; i < count * 2 * width; ++i)
+                        batch[i] = peerIn.readLong();
+                    for (int i = 0; i < count; ++i)
+                        add(batch, i * 2 * width, batch, i * 2 * width + width);
+                }
+                return null;
+            }));
+        }
+
+        // neighbors for each peer, each followed by its parent's key
+        long[][] batches = new long[workers][BATCH_SIZE * 2 * width];
+        int[] counts = new int[workers];
+        long[] current = new long[width];
+        long[] child = new long[width];
+        long[] solution = null;
+        long generated = 0;
+        for (int id = layerStart; id < layerEnd; ++id) {
+            synchronized (arena) {
+                arena.copyKey(id, current, 0);
+            }
+            for (Configuration neighbor : start.readKey(current, 0).getNeighbors()) {
+                generated++;
+                ((PackedConfiguration) neighbor).writeKey(child, 0);
+                if (solution == null && neighbor.isSolution()) {
+                    solution = Arrays.copyOf(child, 2 * width);
+                    System.arraycopy(current, 0, solution, width, width);
+                }
+                int owner = owner(child, width, workers);
+                if (owner == index) {
+                    add(child, 0, current, 0);
+                    continue;
+                }
+                System.arraycopy(child, 0, batches[owner], counts[owner] * 2 * width, width);
+                System.arraycopy(current, 0, batches[owner], counts[owner] * 2 * width + width, width);
+                if (++counts[owner] == BATCH_SIZE) {
+                    send(owner, batches[owner], counts[owner]);
+                    counts[owner] = 0;
+                }
+            }
+        }
+        for (int peer = 0; peer < workers; ++peer) {
+            if (peer == index)
+                continue;
+            if (counts[peer] > 0)
+                send(peer, batches[peer], counts[peer]);
+            toPeers[peer].writeInt(END);
+            toPeers[peer].flush();
+        }
+        try {
+            for (Future<Void> future : received)
+                future.get();
+        } catch (Exception e) {
+            throw new IOException("Lost a peer", e);
+        }
+
+        layerStart = layerEnd;
+        layerEnd = arena.size();
+        out.writeLong(layerEnd - sizeBefore);
+        out.writeLong(generated);
+        out.writeLong(arena.bytes() + (long) parents.length * Long.BYTES);
+        out.writeBoolean(solution != null);
+        if (solution != null)
+            DistributedSolver.writeKeys(out, solution);
+        out.flush();
+    }
+
+    private void send(int peer, long[] batch, int count) throws IOException {
+        toPeers[peer].writeInt(count);
+        for (int i = 0; i < count * 2 * width; ++i)
+            toPeers[peer].writeLong(batch[i]);
+    }
+
+    // keep a config if it is new; parent is null for the start
+    private void add(long[] key, int offset, long[] parent, int parentOffset) {
+        synchronized (arena) {
+            int id = arena.add(key, offset, parent == null ? StateArena.NONE : 0);
+            if (id < 0 || parent == null)
+                return;
+            if ((id + 1) * width > parents.length)
+                parents = Arrays.copyOf(parents, parents.length * 2);
+            System.arraycopy(parent, parentOffset, parents, id * width, width);
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package puzzles.common.solver;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Breadth first search that keeps its layers on disk, for clusters too
+ * big for the heap. A layer is a file of packed keys in sorted order,
+ * each stored as the difference from the key before it. The neighbors
+ * of a layer are buffered, sorted and written out as runs; the runs are
+ * then merged into the next layer, dropping every key already in the
+ * current or the previous layer. That is all the duplicate detection
+ * needed, since every move can be undone and so a neighbor of layer d
+ * is in layer d - 1, d or d + 1.
+ *
+ * The heap holds one run buffer and the read buffers of at most
+ * MERGE_WAY runs, however many runs a layer spills; the path is rebuilt
+ * by scanning the layers from the solution back to the start for a
+ * neighbor of each step. The layer files are deleted when the search
+ * ends.
+ */
+public class ExternalSolver extends Solver {
+    /** default keys buffered before a run is written */
+    public final static int DEFAULT_RUN_KEYS = 1 << 20;
+
+    /** most runs merged at once, each with a read buffer */
+    private final static int MERGE_WAY = 64;
+
+    /** where the directory of layer files is made */
+    private final Path tempParent;
+
+    /** keys buffered before a run is written */
+    private final int runKeys;
+
+    /**
+     * Constructor
+     * keeps layers under java.io.tmpdir with runs of DEFAULT_RUN_KEYS keys
+     */
+    public ExternalSolver(){
+        this(Path.of(System.getProperty("java.io.tmpdir")), DEFAULT_RUN_KEYS);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param tempParent where the directory of layer files is made
+     * @param runKeys keys buffered before a run is written
+     */
+    public ExternalSolver(Path tempParent, int runKeys){
+        super();
+        if (runKeys < 1)
+            throw new IllegalArgumentException("Runs need at least one key: " + runKeys);
+        this.tempParent = tempParent;
+        this.runKeys = runKeys;
+    }
+
+    // find shortest path
+    @Override
+    protected Collection<Configuration> search(Configuration config) {
+        if (!(config instanceof PackedConfiguration))
+            throw new IllegalArgumentException("External search needs a PackedConfiguration");
+        Path dir = null;
+        try {
+            dir = Files.createTempDirectory(tempParent, "bfs");
+            return search((PackedConfiguration) config, dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (dir != null)
+                delete(dir);
+        }
+    }
+
+    private List<Configuration> search(PackedConfiguration start, Path dir) throws IOException {
+        int width = start.keyLength();
+        long[] key = new long[width];
+
+        // layer 0 is the start
+        List<Path> layers = new ArrayList<>();
+        List<Long> sizes = new ArrayList<>();
+        start.writeKey(key, 0);
+        try (KeyWriter out = new KeyWriter(dir.resolve("layer-0"), width)) {
+            out.write(key, 0);
+        }
+        layers.add(dir.resolve("layer-0"));
+        sizes.add(1L);
+
+        metrics.start(totalCounter);
+        RunBuffer runs = new RunBuffer(dir, width, runKeys);
+        long visited = 1;
+        long expanded = 0;
+        Configuration[] found = new Configuration[1];
+        List<Configuration> path = new ArrayList<>();
+        if (start.isSolution())
+            path.add(start);
+
+        for (int depth = 0; path.isEmpty(); ++depth) {
+            // expand the layer, catching a solution as soon as it is generated
+            try (KeyReader in = new KeyReader(layers.get(depth), width, sizes.get(depth))) {
+                while (found[0] == null && in.next(key)) {
+                    checkLimits(visited, runs.bytes());
+                    expanded++;
+                    Configuration current = start.readKey(key, 0);
+                    current.forEachNeighbor(child -> {
+                        this.totalCounter++;
+                        if (child.isSolution()) {
+                            found[0] = child;
+                            return false;
+                        }
+                        runs.add((PackedConfiguration) child);
+                        return true;
+                    });
+                    if (found[0] != null) {
+                        path = tracePath(start, layers, sizes, depth, current);
+                        path.add(found[0]);
+                        visited++;
+                    }
+                }
+            }
+            if (found[0] != null) {
+                metrics.layer(depth, sizes.get(depth), expanded, totalCounter, visited, runs.bytes());
+                break;
+            }
+
+            // next layer is every new neighbor
+            Path next = dir.resolve("layer-" + (depth + 1));
+            long size = runs.merge(next,
+                    new KeyReader(layers.get(depth), width, sizes.get(depth)),
+                    depth == 0 ? null : new KeyReader(layers.get(depth - 1), width, sizes.get(depth - 1)));
+            visited += size;
+            metrics.layer(depth, sizes.get(depth), expanded, totalCounter, visited, runs.bytes());
+            if (size == 0)
+                break;
+            layers.add(next);
+            sizes.add(size);
+        }
+
+        uniqueCounter = (int) Math.min(visited, Integer.MAX_VALUE);
+        metrics.finish(!path.isEmpty(), expanded, totalCounter, visited, runs.bytes());
+        return path;
+    }
+
+    /**
+     * Walks back from a config to the start, each time scanning the
+     * layer before for one of its neighbors
+     *
+     * @param start the start
+     * @param layers layer files
+     * @param sizes keys in each layer
+     * @param depth layer of the config
+     * @param config the config
+     * @return configs from the start to the config
+     */
+    private List<Configuration> tracePath(PackedConfiguration start, List<Path> layers, List<Long> sizes,
+                                          int depth, Configuration config) throws IOException {
+        int width = start.keyLength();
+        List<Configuration> path = new ArrayList<>();
+        path.add(config);
+        long[] key = new long[width];
+        for (int d = depth - 1; d >= 0; --d) {
+            // neighbor keys in file order
+            List<long[]> wanted = new ArrayList<>();
+            path.get(path.size() - 1).forEachNeighbor(child -> {
+                long[] childKey = new long[width];
+                ((PackedConfiguration) child).writeKey(childKey, 0);
+                wanted.add(childKey);
+                return true;
+            });
+            wanted.sort(Arrays::compare);
+
+            // merge the sorted neighbors with the sorted layer
+            Configuration previous = null;
+            try (KeyReader in = new KeyReader(layers.get(d), width, sizes.get(d))) {
+                int i = 0;
+                while (previous == null && i < wanted.size() && in.next(key)) {
+                    while (i < wanted.size() && Arrays.compare(wanted.get(i), key) < 0)
+                        i++;
+                    if (i < wanted.size() && Arrays.equals(wanted.get(i), key))
+                        previous = start.readKey(key, 0);
+                }
+            }
+            if (previous == null)
+                throw new IllegalStateException("No neighbor in layer " + d + "; are all moves reversible?");
+            path.add(previous);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Deletes the directory of layer files
+     */
+    private static void delete(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator)
+                Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            System.err.println("Could not delete " + dir + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Neighbors of the layer being expanded, buffered in memory and
+     * spilled to sorted run files
+     */
+    private static class RunBuffer {
+        private final Path dir;
+        private final int width;
+        private final long[] keys;
+        private int size;
+        private final List<Path> files = new ArrayList<>();
+        private final List<Long> sizes = new ArrayList<>();
+        private int written;
+
+        RunBuffer(Path dir, int width, int runKeys) {
+            this.dir = dir;
+            this.width = width;
+            this.keys = new long[runKeys * width];
+        }
+
+        long bytes() {
+            return (long) keys.length * Long.BYTES;
+        }
+
+        void add(PackedConfiguration config) {
+            config.writeKey(keys, size * width);
+            if (++size * width == keys.length)
+                spill();
+        }
+
+        /**
+         * Sorts the buffer and writes it as a run without repeats
+         */
+        private void spill() {
+            if (size == 0)
+                return;
+            Path file = dir.resolve("run-" + written++);
+            try (KeyWriter out = new KeyWriter(file, width)) {
+                if (width == 1) {
+                    Arrays.sort(keys, 0, size);
+                    for (int i = 0; i < size; ++i)
+                        if (i == 0 || keys[i] != keys[i - 1])
+                            out.write(keys, i);
+                } else {
+                    int[] order = DistanceTable.sortedOrder(keys, width, size);
+                    for (int i = 0; i < size; ++i)
+                        if (i == 0 || Arrays.compare(keys, order[i] * width, order[i] * width + width,
+                                keys, order[i - 1] * width, order[i - 1] * width + width) != 0)
+                            out.write(keys, order[i] * width);
+                }
+                files.add(file);
+                sizes.add(out.count());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            size = 0;
+        }
+
+        /**
+         * Merges the runs into a layer, leaving out keys of the current
+         * and previous layers, then deletes the runs. Runs are first
+         * merged MERGE_WAY at a time into longer runs, so no more than
+         * MERGE_WAY of them are ever open at once.
+         *
+         * @param layer the new layer file
+         * @param current reader of the layer just expanded
+         * @param previous reader of the layer before it; null if none
+         * @return keys in the new layer
+         */
+        long merge(Path layer, KeyReader current, KeyReader previous) throws IOException {
+            try (KeyReader seen = current;
+                 KeyReader older = previous) {
+                spill();
+                while (files.size() > MERGE_WAY) {
+                    List<Path> longer = new ArrayList<>();
+                    List<Long> longerSizes = new ArrayList<>();
+                    for (int from = 0; from < files.size(); from += MERGE_WAY) {
+                        int to = Math.min(from + MERGE_WAY, files.size());
+                        Path file = dir.resolve("run-" + written++);
+                        longer.add(file);
+                        longerSizes.add(merge(file, files.subList(from, to), sizes.subList(from, to), null, null));
+                    }
+                    files.clear();
+                    files.addAll(longer);
+                    sizes.clear();
+                    sizes.addAll(longerSizes);
+                }
+                long count = merge(layer, files, sizes, seen, older);
+                files.clear();
+                sizes.clear();
+                return count;
+            }
+        }
+
+        /**
+         * Merges runs into one file without repeats, leaving out keys of
+         * up to two sorted layers, then deletes the runs
+         *
+         * @param target the merged file
+         * @param runs the runs
+         * @param runSizes keys in each run
+         * @param seen reader of a layer to leave out; null if none
+         * @param older reader of another layer to leave out; null if none
+         * @return keys in the merged file
+         */
+        private long merge(Path target, List<Path> runs, List<Long> runSizes,
+                           KeyReader seen, KeyReader older) throws IOException {
+            PriorityQueue<KeyReader> heads = new PriorityQueue<>((a, b) -> Arrays.compare(a.key, b.key));
+            try (KeyWriter out = new KeyWriter(target, width)) {
+                for (int i = 0; i < runs.size(); ++i) {
+                    KeyReader run = new KeyReader(runs.get(i), width, runSizes.get(i));
+                    if (run.next(run.key))
+                        heads.add(run);
+                    else
+                        run.close();
+                }
+                boolean seenLeft = seen != null && seen.next(seen.key);
+                boolean olderLeft = older != null && older.next(older.key);
+
+                long[] last = null;
+                while (!heads.isEmpty()) {
+                    KeyReader head = heads.poll();
+                    long[] key = head.key.clone();
+                    if (head.next(head.key))
+                        heads.add(head);
+                    else
+                        head.close();
+                    if (last != null && Arrays.equals(last, key))
+                        continue;
+                    last = key;
+
+                    // both layers are sorted, so they only move forward
+                    while (seenLeft && Arrays.compare(seen.key, key) < 0)
+                        seenLeft = seen.next(seen.key);
+                    while (olderLeft && Arrays.compare(older.key, key) < 0)
+                        olderLeft = older.next(older.key);
+                    if ((seenLeft && Arrays.equals(seen.key, key)) || (olderLeft && Arrays.equals(older.key, key)))
+                        continue;
+                    out.write(key, 0);
+                }
+                for (Path file : runs)
+                    Files.deleteIfExists(file);
+                return out.count();
+            } finally {
+                for (KeyReader head : heads)
+                    head.close();
+            }
+        }
+    }
+
+    /**
+     * Writes ascending keys, each as the index of the first long that
+     * differs from the key before, the difference in that long and the
+     * remaining longs, all as variable length numbers
+     */
+    private static class KeyWriter implements Closeable {
+        private final DataOutputStream out;
+        private final long[] previous;
+        private long count;
+
+        KeyWriter(Path file, int width) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+            this.previous = new long[width];
+        }
+
+        void write(long[] keys, int offset) throws IOException {
+            int first = 0;
+            if (count > 0)
+                while (first < previous.length - 1 && keys[offset + first] == previous[first])
+                    first++;
+            writeNumber(first);
+            writeNumber(keys[offset + first] - previous[first]);
+            for (int i = first + 1; i < previous.length; ++i)
+                writeNumber(keys[offset + i]);
+            System.arraycopy(keys, offset, previous, 0, previous.length);
+            count++;
+        }
+
+        long count() {
+            return count;
+        }
+
+        private void writeNumber(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads back the keys of a KeyWriter
+     */
+    private static class KeyReader implements Closeable {
+        private final DataInputStream in;
+        private final long[] previous;
+        private long remaining;
+
+        /** last key read; used by merges */
+        final long[] key;
+
+        KeyReader(Path file, int width, long count) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+            this.previous = new long[width];
+            this.key = new long[width];
+            this.remaining = count;
+        }
+
+        /**
+         * Reads the next key
+         *
+         * @param dest where the key goes
+         * @return false if there are no keys left
+         */
+        boolean next(long[] dest) throws IOException {
+            if (remaining == 0)
+                return false;
+            remaining--;
+            int first = (int) readNumber();
+            previous[first] += readNumber();
+            for (int i = first + 1; i < previous.length; ++i)
+                previous[i] = readNumber();
+            System.arraycopy(previous, 0, dest, 0, previous.length);
+            return true;
+        }
+
+        private long readNumber() throws IOException {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package puzzles.common.solver;
+
+/**
+ * Ids of configs waiting to be expanded, kept in primitive arrays so
+ * adding one allocates nothing. A search hands each id over with a
+ * priority and takes them back in the order of the implementation:
+ * RingFrontier is first in first out, BucketFrontier lowest priority
+ * first and LayeredFrontier one whole layer after another.
+ */
+public interface Frontier {
+    /**
+     * @param id id of a config
+     * @param priority its priority; never negative; ignored by frontiers
+     *                 that keep their own order
+     */
+    public void add(int id, int priority);
+
+    /**
+     * @return the next id
+     * @throws java.util.NoSuchElementException if the frontier is empty
+     */
+    public int poll();
+
+    /**
+     * @return number of ids waiting
+     */
+    public int size();
+
+    /**
+     * @return true if no ids are waiting
+     */
+    public default boolean isEmpty(){
+        return size() == 0;
+    }
+
+    /**
+     * @return bytes held by the frontier's arrays
+     */
+    public long bytes();
+}
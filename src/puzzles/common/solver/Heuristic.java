@@ -0,0 +1,14 @@
+package puzzles.common.solver;
+
+/**
+ * Estimates how many moves a configuration is from a solution.
+ * An AStarSolver only returns shortest paths if the estimate is
+ * admissible, that is, it never exceeds the real number of moves.
+ */
+public interface Heuristic {
+    /**
+     * @param config configuration being estimated
+     * @return lower bound on the moves left to a solution
+     */
+    public int estimate(Configuration config);
+}
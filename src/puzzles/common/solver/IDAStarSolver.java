@@ -0,0 +1,163 @@
+package puzzles.common.solver;
+
+import java.util.*;
+
+/**
+ * Iterative deepening A*: depth first searches cut off where moves so
+ * far plus a Heuristic estimate go over a bound, raising the bound to
+ * the smallest estimate that went over it until a solution turns up.
+ * Memory is the current path plus a fixed size transposition table of
+ * the fewest moves each config was reached with in the current round,
+ * so a config reached again no cheaper is not searched twice. Configs
+ * pushed out of the table are only searched again, never missed, so
+ * with an admissible heuristic the path is still a shortest one.
+ *
+ * This is the fallback for searches that run out of memory. An
+ * unsolvable puzzle is only given up on once every path without a
+ * repeated config is too long, so give it a time budget.
+ */
+public class IDAStarSolver extends Solver {
+    /** log2 of the default number of table entries */
+    public final static int DEFAULT_TABLE_BITS = 18;
+
+    /** estimate of the moves left from a config */
+    private final Heuristic heuristic;
+
+    /** config, moves to it and round of each table entry */
+    private final Configuration[] tableConfigs;
+    private final int[] tableCosts;
+    private final int[] tableRounds;
+
+    /** shift taking a 64 bit hash to a table index */
+    private final int shift;
+
+    /** table entries in use */
+    private int used;
+
+    /** number of depth first searches so far; tells stale entries apart */
+    private int round;
+
+    /** smallest estimate over the bound in the current round */
+    private int nextBound;
+
+    /** configs expanded in the current search */
+    private long expanded;
+
+    /**
+     * Constructor
+     * uses a table of 2^DEFAULT_TABLE_BITS entries
+     *
+     * @param heuristic admissible estimate of the moves left
+     */
+    public IDAStarSolver(Heuristic heuristic){
+        this(heuristic, DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param heuristic admissible estimate of the moves left
+     * @param tableBits log2 of the number of table entries
+     */
+    public IDAStarSolver(Heuristic heuristic, int tableBits){
+        super();
+        if (tableBits < 1 || tableBits > 30)
+            throw new IllegalArgumentException("Table bits must be between 1 and 30: " + tableBits);
+        this.heuristic = heuristic;
+        this.tableConfigs = new Configuration[1 << tableBits];
+        this.tableCosts = new int[1 << tableBits];
+        this.tableRounds = new int[1 << tableBits];
+        this.shift = 64 - tableBits;
+    }
+
+    // find shortest path
+    @Override
+    protected Collection<Configuration> search(Configuration config) {
+        // current path and the configs on it
+        List<Configuration> path = new ArrayList<>();
+        Set<Configuration> onPath = new HashSet<>();
+        path.add(config);
+        onPath.add(config);
+
+        // a layer is one depth first search
+        metrics.start(totalCounter);
+        expanded = 0;
+        int bound = heuristic.estimate(config);
+        boolean found;
+        while (true) {
+            round++;
+            nextBound = Integer.MAX_VALUE;
+            long before = expanded;
+            found = deepen(path, onPath, 0, bound);
+            metrics.layer(bound, expanded - before, expanded, totalCounter, used, -1);
+            if (found || nextBound == Integer.MAX_VALUE)
+                break;
+            bound = nextBound;
+        }
+
+        if (!found)
+            path.clear();
+        uniqueCounter = used;
+        metrics.finish(found, expanded, totalCounter, used, -1);
+        return path;
+    }
+
+    /**
+     * Searches depth first from the last config of the path
+     *
+     * @param path configs from the start; a solution is left on the end
+     * @param onPath configs of the path
+     * @param cost moves to the last config
+     * @param bound largest estimate searched this round
+     * @return true if a solution was found
+     */
+    private boolean deepen(List<Configuration> path, Set<Configuration> onPath, int cost, int bound) {
+        Configuration current = path.get(path.size() - 1);
+        int estimate = cost + heuristic.estimate(current);
+        if (estimate > bound) {
+            nextBound = Math.min(nextBound, estimate);
+            return false;
+        }
+        if (current.isSolution())
+            return true;
+        if (!remember(current, cost))
+            return false;
+
+        checkLimits(used, -1);
+        expanded++;
+
+        // go through neighbors; stop at the first solution
+        return !current.forEachNeighbor(child -> {
+            this.totalCounter++;
+            if (onPath.contains(child))
+                return true;
+            path.add(child);
+            onPath.add(child);
+            if (deepen(path, onPath, cost + 1, bound))
+                return false;
+            path.remove(path.size() - 1);
+            onPath.remove(child);
+            return true;
+        });
+    }
+
+    /**
+     * Records a config in the table unless it was already reached this
+     * round in as few moves
+     *
+     * @param config the config
+     * @param cost moves to it
+     * @return false if the config has been searched from already
+     */
+    private boolean remember(Configuration config, int cost) {
+        int slot = (int) ((config.hashCode() * 0x9E3779B97F4A7C15L) >>> shift);
+        if (tableRounds[slot] == round && tableCosts[slot] <= cost && config.equals(tableConfigs[slot]))
+            return false;
+        if (tableConfigs[slot] == null)
+            used++;
+        tableConfigs[slot] = config;
+        tableCosts[slot] = cost;
+        tableRounds[slot] = round;
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+package puzzles.common.solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one finished layer of a search
+ */
+@Name("puzzles.solver.Layer")
+@Label("Solver Layer")
+@Category({"Puzzles", "Solver"})
+@Description("One layer of a search; the f bound for best first searches")
+class LayerEvent extends Event {
+    @Label("Depth")
+    int depth;
+
+    @Label("Frontier")
+    long frontier;
+
+    @Label("Expanded")
+    long expanded;
+
+    @Label("Generated")
+    long generated;
+
+    @Label("Visited")
+    long visited;
+}
@@ -0,0 +1,73 @@
+package puzzles.common.solver;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Frontier for level-synchronous search: the layer being expanded and
+ * the next one are two flat arrays. Ids are added to the next layer and
+ * polled from the current one in the order they were added; when the
+ * current layer runs out the arrays swap. Priorities are ignored.
+ */
+public class LayeredFrontier implements Frontier {
+    /** the layer being polled */
+    private int[] current = new int[1024];
+
+    /** index of the next id to poll and number of ids in the current layer */
+    private int next;
+    private int currentSize;
+
+    /** the layer being added to */
+    private int[] following = new int[1024];
+    private int followingSize;
+
+    /** layers swapped in so far */
+    private int layer;
+
+    @Override
+    public void add(int id, int priority){
+        if (followingSize == following.length)
+            following = Arrays.copyOf(following, following.length * 2);
+        following[followingSize++] = id;
+    }
+
+    @Override
+    public int poll(){
+        if (next == currentSize) {
+            if (followingSize == 0)
+                throw new NoSuchElementException();
+            int[] swap = current;
+            current = following;
+            currentSize = followingSize;
+            following = swap;
+            followingSize = 0;
+            next = 0;
+            layer++;
+        }
+        return current[next++];
+    }
+
+    /**
+     * @return number of layers polled from so far, counting the current one
+     */
+    public int layer(){
+        return layer;
+    }
+
+    /**
+     * @return ids left in the current layer
+     */
+    public int remaining(){
+        return currentSize - next;
+    }
+
+    @Override
+    public int size(){
+        return currentSize - next + followingSize;
+    }
+
+    @Override
+    public long bytes(){
+        return (long) (current.length + following.length) * Integer.BYTES;
+    }
+}
@@ -0,0 +1,30 @@
+package puzzles.common.solver;
+
+/**
+ * A configuration that can be packed into a fixed number of longs.
+ * The Solver stores packed keys instead of configuration objects and
+ * only rebuilds the configurations on the returned path.
+ */
+public interface PackedConfiguration extends Configuration {
+    /**
+     * @return number of longs in the key of every configuration of this puzzle
+     */
+    public int keyLength();
+
+    /**
+     * Writes this configuration's key
+     *
+     * @param dest array the key is written to
+     * @param offset index of the first long of the key
+     */
+    public void writeKey(long[] dest, int offset);
+
+    /**
+     * Rebuilds a configuration of the same puzzle from its key
+     *
+     * @param src array holding the key
+     * @param offset index of the first long of the key
+     * @return the configuration
+     */
+    public Configuration readKey(long[] src, int offset);
+}
@@ -0,0 +1,160 @@
+package puzzles.common.solver;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Breadth first search that expands each layer on a ForkJoinPool.
+ * Neighbors are generated in parallel and then merged into the next
+ * layer in frontier order, so the path and both counters are exactly
+ * those of the single-threaded Solver. A search that is itself running
+ * on a ForkJoinPool, as under java Jam -batch, shares that pool rather
+ * than starting threads of its own.
+ */
+public class ParallelSolver extends Solver {
+    /** frontier slices smaller than this are expanded on one thread */
+    private final static int SLICE = 64;
+
+    /** number of worker threads */
+    private final int parallelism;
+
+    /**
+     * Constructor
+     * uses one thread per available core
+     */
+    public ParallelSolver(){
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param parallelism number of worker threads
+     */
+    public ParallelSolver(int parallelism){
+        super();
+        this.parallelism = parallelism;
+    }
+
+    // find shortest path
+    @Override
+    protected Collection<Configuration> search(Configuration config) {
+        // already on a pool, so a pool of our own would only add threads
+        if (ForkJoinTask.inForkJoinPool())
+            return solve(config, ForkJoinTask.getPool());
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return solve(config, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private List<Configuration> solve(Configuration config, ForkJoinPool pool) {
+        // end node
+        Configuration finalConfig = config.isSolution() ? config : null;
+
+        // map of configs; read concurrently while a layer expands.
+        // the start maps to itself since the map has no null values
+        Map<Configuration, Configuration> predecessors = new ConcurrentHashMap<>();
+        predecessors.put(config, config);
+
+        List<Configuration> frontier = new ArrayList<>();
+        frontier.add(config);
+
+        metrics.start(totalCounter);
+        int depth = 0;
+        long expanded = 0;
+
+        while (finalConfig == null && !frontier.isEmpty()) {
+            checkLimits(predecessors.size(), -1);
+            List<Configuration> layer = frontier;
+
+            // go through neighbors of the whole layer in parallel
+            List<List<Configuration>> children = new ArrayList<>(Collections.nCopies(layer.size(), null));
+            pool.invoke(new Expand(layer, predecessors, children, 0, layer.size()));
+
+            // merge in frontier order so the result does not depend on
+            // scheduling, stopping at the first solution like Solver does
+            frontier = new ArrayList<>();
+            merge:
+            for (int i = 0; i < layer.size(); ++i) {
+                checkLimits(predecessors.size(), -1);
+                Configuration current = layer.get(i);
+                expanded++;
+                for (Configuration child : children.get(i)) {
+                    this.totalCounter++;
+                    if (child != null && predecessors.putIfAbsent(child, current) == null) {
+                        frontier.add(child);
+                        if (child.isSolution()) {
+                            finalConfig = child;
+                            break merge;
+                        }
+                    }
+                }
+            }
+            metrics.layer(depth++, layer.size(), expanded, totalCounter, predecessors.size(), -1);
+        }
+
+        // path from start to end node
+        List<Configuration> path = new ArrayList<>();
+
+        // construct path
+        if (finalConfig != null) {
+            Configuration currConfig = finalConfig;
+            while (!currConfig.equals(config)) {
+                path.add(currConfig);
+                currConfig = predecessors.get(currConfig);
+            }
+            path.add(config);
+            Collections.reverse(path);
+        }
+
+        uniqueCounter = predecessors.size();
+        metrics.finish(finalConfig != null, expanded, totalCounter, uniqueCounter, -1);
+        return path;
+    }
+
+    /**
+     * Expands a slice of a layer. Neighbors already seen in earlier
+     * layers are kept as null so the merge still counts them.
+     */
+    private static class Expand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Configuration> layer;
+        private final Map<Configuration, Configuration> predecessors;
+        private final List<List<Configuration>> children;
+        private final int from;
+        private final int to;
+
+        Expand(List<Configuration> layer, Map<Configuration, Configuration> predecessors,
+               List<List<Configuration>> children, int from, int to) {
+            this.layer = layer;
+            this.predecessors = predecessors;
+            this.children = children;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SLICE) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Expand(layer, predecessors, children, from, mid),
+                        new Expand(layer, predecessors, children, mid, to));
+                return;
+            }
+            for (int i = from; i < to; ++i) {
+                List<Configuration> neighbors = new ArrayList<>();
+                layer.get(i).forEachNeighbor(child ->
+                        neighbors.add(predecessors.containsKey(child) ? null : child));
+                children.set(i, neighbors);
+            }
+        }
+    }
+}
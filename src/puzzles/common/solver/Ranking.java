@@ -0,0 +1,25 @@
+package puzzles.common.solver;
+
+/**
+ * A numbering of every configuration of a puzzle by the integers from 0
+ * to size() - 1, with no gaps beyond configurations that cannot occur.
+ * With one a search can mark visited configurations in a bitmap.
+ */
+public interface Ranking {
+    /**
+     * @return number of ranks
+     */
+    public long size();
+
+    /**
+     * @param config a configuration of the puzzle
+     * @return its rank, between 0 and size() - 1
+     */
+    public long rank(Configuration config);
+
+    /**
+     * @param rank a rank of a configuration that can occur
+     * @return the configuration
+     */
+    public Configuration unrank(long rank);
+}
@@ -0,0 +1,51 @@
+package puzzles.common.solver;
+
+import java.util.NoSuchElementException;
+
+/**
+ * First in first out frontier for breadth first search: a circular
+ * buffer of ids that doubles when full. Priorities are ignored.
+ */
+public class RingFrontier implements Frontier {
+    /** ids; the length is a power of two */
+    private int[] ids = new int[1024];
+
+    /** index of the next id to poll */
+    private int head;
+
+    /** number of ids waiting */
+    private int size;
+
+    @Override
+    public void add(int id, int priority){
+        if (size == ids.length) {
+            // unwrap into a buffer twice as long
+            int[] grown = new int[ids.length * 2];
+            System.arraycopy(ids, head, grown, 0, ids.length - head);
+            System.arraycopy(ids, 0, grown, ids.length - head, head);
+            ids = grown;
+            head = 0;
+        }
+        ids[(head + size++) & (ids.length - 1)] = id;
+    }
+
+    @Override
+    public int poll(){
+        if (size == 0)
+            throw new NoSuchElementException();
+        int id = ids[head];
+        head = (head + 1) & (ids.length - 1);
+        size--;
+        return id;
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    @Override
+    public long bytes(){
+        return (long) ids.length * Integer.BYTES;
+    }
+}
@@ -0,0 +1,65 @@
+package puzzles.common.solver;
+
+/**
+ * Limits on a single search: how many configs it may visit, roughly how
+ * many bytes it may hold and how long it may run. A Solver that goes
+ * over any of them stops with a BudgetExceededException, or hands the
+ * search to its fallback solver if the limit was states or memory.
+ *
+ * Searches that count the bytes of their own structures, such as the
+ * packed breadth first search, are held to the byte limit exactly.
+ * The others, such as A* and the breadth first search of unpacked
+ * configs, are measured by how much the heap has grown. That includes
+ * garbage not yet collected, so for them the limit is approximate and
+ * can be reached early.
+ */
+public final class SearchBudget {
+    /** no limits at all */
+    public final static SearchBudget UNLIMITED = new SearchBudget(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    /** most configs the search may visit */
+    private final long maxStates;
+
+    /** most bytes the search may hold; approximate, see above */
+    private final long maxBytes;
+
+    /** most milliseconds the search may run */
+    private final long maxMillis;
+
+    /**
+     * Constructor
+     * Long.MAX_VALUE leaves a limit off
+     *
+     * @param maxStates most configs the search may visit
+     * @param maxBytes most bytes the search may hold
+     * @param maxMillis most milliseconds the search may run
+     */
+    public SearchBudget(long maxStates, long maxBytes, long maxMillis){
+        if (maxStates <= 0 || maxBytes <= 0 || maxMillis <= 0)
+            throw new IllegalArgumentException("Search budget limits must be positive");
+        this.maxStates = maxStates;
+        this.maxBytes = maxBytes;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * @return most configs the search may visit
+     */
+    public long getMaxStates(){
+        return maxStates;
+    }
+
+    /**
+     * @return most bytes the search may hold
+     */
+    public long getMaxBytes(){
+        return maxBytes;
+    }
+
+    /**
+     * @return most milliseconds the search may run
+     */
+    public long getMaxMillis(){
+        return maxMillis;
+    }
+}
@@ -0,0 +1,36 @@
+package puzzles.common.solver;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for one whole search
+ */
+@Name("puzzles.solver.Search")
+@Label("Solver Search")
+@Category({"Puzzles", "Solver"})
+@Description("A finished search and what it took")
+class SearchEvent extends Event {
+    @Label("Solved")
+    boolean solved;
+
+    @Label("Expanded")
+    long expanded;
+
+    @Label("Generated")
+    long generated;
+
+    @Label("Peak Visited")
+    long peakVisited;
+
+    @Label("Layers")
+    int layers;
+
+    @Label("Bytes Per State")
+    @DataAmount
+    long bytesPerState;
+}
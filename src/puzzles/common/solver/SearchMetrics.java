@@ -0,0 +1,315 @@
+package puzzles.common.solver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * What a search did: frontier size and wall time of every layer, configs
+ * expanded per second, how many generated configs were duplicates, the
+ * peak number of visited configs and an estimate of the bytes held per
+ * visited config. Every layer and every finished search is also emitted
+ * as a JDK Flight Recorder event, so production solves can be profiled
+ * by starting a recording.
+ */
+public class SearchMetrics {
+    /**
+     * One finished layer of a search
+     */
+    public static class Layer {
+        /** depth of the layer; the f bound for best first searches */
+        public final int depth;
+
+        /** configs in the layer */
+        public final long frontier;
+
+        /** configs expanded in the layer */
+        public final long expanded;
+
+        /** neighbors generated in the layer */
+        public final long generated;
+
+        /** configs visited by the end of the layer */
+        public final long visited;
+
+        /** wall time of the layer */
+        public final long nanos;
+
+        Layer(int depth, long frontier, long expanded, long generated, long visited, long nanos) {
+            this.depth = depth;
+            this.frontier = frontier;
+            this.expanded = expanded;
+            this.generated = generated;
+            this.visited = visited;
+            this.nanos = nanos;
+        }
+    }
+
+    /** finished layers */
+    private final List<Layer> layers = new ArrayList<>();
+
+    /** totalCounter of the solver before this search */
+    private long counterBase;
+
+    /** start of the search and of the current layer */
+    private long startNanos;
+    private long layerNanos;
+
+    /** end of the search */
+    private long endNanos;
+
+    /** totals so far */
+    private long expanded;
+    private long generated;
+    private long visited;
+    private long peakVisited;
+    private long bytes;
+
+    /** heap in use when the search started */
+    private long heapBase;
+
+    /** true if a solution was found */
+    private boolean solved;
+
+    /** told about every finished layer; null if nobody listens */
+    private volatile Consumer<Layer> listener;
+
+    /** flight recorder event of the current layer */
+    private LayerEvent layerEvent;
+
+    /** flight recorder event of the whole search */
+    private SearchEvent searchEvent;
+
+    /**
+     * Sets who is told about each layer as soon as it finishes. The
+     * listener runs on the searching thread, so it should only hand the
+     * layer on.
+     *
+     * @param listener called with each finished layer; null for none
+     */
+    public void setListener(Consumer<Layer> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return who is told about each layer; null for nobody
+     */
+    Consumer<Layer> getListener() {
+        return listener;
+    }
+
+    /**
+     * Starts recording a search
+     *
+     * @param totalCounter the solver's totalCounter before the search
+     */
+    public void start(int totalCounter) {
+        layers.clear();
+        counterBase = totalCounter - 1;
+        expanded = generated = visited = peakVisited = bytes = 0;
+        solved = false;
+        Runtime runtime = Runtime.getRuntime();
+        heapBase = runtime.totalMemory() - runtime.freeMemory();
+        startNanos = layerNanos = endNanos = System.nanoTime();
+        searchEvent = new SearchEvent();
+        searchEvent.begin();
+        layerEvent = new LayerEvent();
+        layerEvent.begin();
+    }
+
+    /**
+     * Records the end of a layer
+     *
+     * @param depth depth of the layer
+     * @param frontier configs in the layer
+     * @param expanded configs expanded so far
+     * @param totalCounter the solver's totalCounter
+     * @param visited configs visited so far
+     * @param bytes bytes held by the visited configs; -1 to estimate
+     *              them from the heap
+     */
+    public void layer(int depth, long frontier, long expanded, int totalCounter, long visited, long bytes) {
+        long now = System.nanoTime();
+        long generated = totalCounter - counterBase;
+        Layer layer = new Layer(depth, frontier, expanded - this.expanded,
+                generated - this.generated, visited, now - layerNanos);
+        layers.add(layer);
+        update(expanded, generated, visited, bytes);
+        layerNanos = now;
+
+        Consumer<Layer> listener = this.listener;
+        if (listener != null)
+            listener.accept(layer);
+
+        layerEvent.depth = depth;
+        layerEvent.frontier = frontier;
+        layerEvent.expanded = layer.expanded;
+        layerEvent.generated = layer.generated;
+        layerEvent.visited = visited;
+        layerEvent.commit();
+        layerEvent = new LayerEvent();
+        layerEvent.begin();
+    }
+
+    /**
+     * Records the end of the search
+     *
+     * @param solved true if a solution was found
+     * @param expanded configs expanded
+     * @param totalCounter the solver's totalCounter
+     * @param visited configs visited
+     * @param bytes bytes held by the visited configs; -1 to estimate
+     *              them from the heap
+     */
+    public void finish(boolean solved, long expanded, int totalCounter, long visited, long bytes) {
+        endNanos = System.nanoTime();
+        this.solved = solved;
+        update(expanded, totalCounter - counterBase, visited, bytes);
+
+        searchEvent.solved = solved;
+        searchEvent.expanded = expanded;
+        searchEvent.generated = this.generated;
+        searchEvent.peakVisited = peakVisited;
+        searchEvent.layers = layers.size();
+        searchEvent.bytesPerState = bytesPerState();
+        searchEvent.commit();
+    }
+
+    /**
+     * Leaves the start config out of the generated configs, for a search
+     * that gives up before it even marks the start as visited
+     */
+    void skipStart() {
+        counterBase++;
+    }
+
+    /**
+     * Takes over everything another search recorded, such as a fallback
+     * that finished a search this one gave up on; the listener stays
+     *
+     * @param other metrics of the other search
+     */
+    void copy(SearchMetrics other) {
+        layers.clear();
+        layers.addAll(other.layers);
+        counterBase = other.counterBase;
+        startNanos = other.startNanos;
+        layerNanos = other.layerNanos;
+        endNanos = other.endNanos;
+        expanded = other.expanded;
+        generated = other.generated;
+        visited = other.visited;
+        peakVisited = other.peakVisited;
+        bytes = other.bytes;
+        heapBase = other.heapBase;
+        solved = other.solved;
+    }
+
+    private void update(long expanded, long generated, long visited, long bytes) {
+        this.expanded = expanded;
+        this.generated = generated;
+        this.visited = visited;
+        this.peakVisited = Math.max(peakVisited, visited);
+        if (bytes < 0)
+            bytes = heapGrowth();
+        this.bytes = Math.max(this.bytes, bytes);
+    }
+
+    /**
+     * @return heap in use now less the heap in use when the search
+     * started; a rough upper bound on the bytes the search holds, since
+     * it includes garbage that has not been collected yet
+     */
+    long heapGrowth() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory() - heapBase;
+    }
+
+    /**
+     * @return finished layers in order
+     */
+    public List<Layer> layers() {
+        return Collections.unmodifiableList(layers);
+    }
+
+    /**
+     * @return true if the search found a solution
+     */
+    public boolean solved() {
+        return solved;
+    }
+
+    /**
+     * @return configs expanded
+     */
+    public long expanded() {
+        return expanded;
+    }
+
+    /**
+     * @return neighbors generated, counting the start
+     */
+    public long generated() {
+        return generated;
+    }
+
+    /**
+     * @return generated configs that had already been visited
+     */
+    public long duplicates() {
+        return generated - visited;
+    }
+
+    /**
+     * @return share of generated configs that were duplicates
+     */
+    public double duplicateRatio() {
+        return generated == 0 ? 0 : (double) duplicates() / generated;
+    }
+
+    /**
+     * @return most configs visited at once
+     */
+    public long peakVisited() {
+        return peakVisited;
+    }
+
+    /**
+     * @return estimated bytes held per visited config
+     */
+    public long bytesPerState() {
+        return peakVisited == 0 ? 0 : Math.max(bytes, 0) / peakVisited;
+    }
+
+    /**
+     * @return wall time of the search in nanoseconds
+     */
+    public long elapsedNanos() {
+        return endNanos - startNanos;
+    }
+
+    /**
+     * @return configs expanded per second
+     */
+    public double expandedPerSecond() {
+        return elapsedNanos() == 0 ? 0 : expanded * 1e9 / elapsedNanos();
+    }
+
+    /**
+     * @return a printable summary with one line per layer
+     */
+    public String summary() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("Expanded: %d configs in %.1f ms (%.0f configs/s)%n",
+                expanded, elapsedNanos() / 1e6, expandedPerSecond()));
+        builder.append(String.format("Duplicates: %d of %d generated (%.1f%%)%n",
+                duplicates(), generated, 100 * duplicateRatio()));
+        builder.append(String.format("Peak visited: %d (~%d bytes/config)%n", peakVisited, bytesPerState()));
+        builder.append(String.format("%6s %10s %10s %10s%n", "Depth", "Frontier", "Expanded", "Time(ms)"));
+        for (Layer layer : layers)
+            builder.append(String.format("%6d %10d %10d %10.2f%n",
+                    layer.depth, layer.frontier, layer.expanded, layer.nanos / 1e6));
+        return builder.toString();
+    }
+}
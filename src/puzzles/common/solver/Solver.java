@@ -1,6 +1,13 @@
 package puzzles.common.solver;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class Solver {
     // total configs
@@ -9,45 +16,247 @@ public class Solver {
     // unique configs
     public int uniqueCounter;
 
+    // what the last search did
+    protected final SearchMetrics metrics = new SearchMetrics();
+
+    // set from another thread to stop the search
+    private volatile boolean cancelled;
+
+    // limits on each search
+    private SearchBudget budget = SearchBudget.UNLIMITED;
+
+    // takes over a search that ran out of states or memory; may be null
+    private Solver fallback;
+
+    // makes the queue of each breadth first search
+    private Supplier<Frontier> frontiers = RingFrontier::new;
+
+    // snapshot of a packed breadth first search and the least time
+    // between two snapshots; no snapshots if null
+    private Path checkpoint;
+    private long checkpointMillis;
+
+    // describes the whole puzzle of a start, so a snapshot is only
+    // picked up by a search of the same puzzle
+    private Function<Configuration, String> describe;
+
+    // time and memory are only looked at once every this many expansions
+    private final static int CHECK_INTERVAL = 256;
+
+    // start of the current search and expansions checked in it
+    private long searchNanos;
+    private int checks;
+
+    // System.nanoTime by which the current search, fallback included,
+    // has to stop; NO_DEADLINE for none
+    private long deadlineNanos;
+    private final static long NO_DEADLINE = Long.MAX_VALUE;
+
     public Solver(){
         totalCounter = 1;
         uniqueCounter = 0;
     }
 
-    // find shortest path
+    // metrics of the last search
+    public SearchMetrics getMetrics() {
+        return metrics;
+    }
+
+    // stop the search at the next expansion; solve then throws
+    // CancellationException. A cancelled solver stays cancelled
+    public void cancel() {
+        cancelled = true;
+        if (fallback != null)
+            fallback.cancel();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // limits on each search
+    public void setBudget(SearchBudget budget) {
+        this.budget = budget;
+    }
+
+    public SearchBudget getBudget() {
+        return budget;
+    }
+
+    // solver that searches again when this one runs out of states or
+    // memory; without one solve throws BudgetExceededException
+    public void setFallback(Solver fallback) {
+        this.fallback = fallback;
+    }
+
+    public Solver getFallback() {
+        return fallback;
+    }
+
+    // queue of each breadth first search; any frontier that hands back
+    // configs in order of depth finds a shortest path
+    public void setFrontier(Supplier<Frontier> frontiers) {
+        this.frontiers = frontiers;
+    }
+
+    public Supplier<Frontier> getFrontier() {
+        return frontiers;
+    }
+
+    // snapshot a packed breadth first search to file between layers,
+    // at most once every intervalMillis, and pick it up from there if
+    // the file is already there; the file is deleted once the search
+    // ends. Unpacked configs and other engines take no snapshots.
+    // describe gives the text of a start's puzzle, board and pieces as
+    // well as where they are; a snapshot of any other puzzle is
+    // refused. solve throws UncheckedIOException if the file cannot be
+    // written or is not a snapshot of this search
+    public void setCheckpoint(Path file, long intervalMillis, Function<Configuration, String> describe) {
+        this.checkpoint = file;
+        this.checkpointMillis = intervalMillis;
+        this.describe = describe;
+    }
+
+    public Path getCheckpoint() {
+        return checkpoint;
+    }
+
+    // called by every engine once per expansion with the configs it has
+    // visited and the bytes they take, -1 if only the heap can tell.
+    // The heap's growth counts garbage not yet collected as well, so a
+    // memory limit on such a search is approximate and may trip early
+    protected void checkLimits(long visited, long bytes) {
+        if (cancelled)
+            throw new CancellationException("Search cancelled");
+        if (visited > budget.getMaxStates())
+            exceeded(BudgetExceededException.Limit.STATES, visited + " configs visited", visited, bytes);
+        if (++checks % CHECK_INTERVAL != 0)
+            return;
+
+        checkTime(visited, bytes);
+        if (budget.getMaxBytes() != Long.MAX_VALUE) {
+            long held = bytes < 0 ? metrics.heapGrowth() : bytes;
+            if (held > budget.getMaxBytes())
+                exceeded(BudgetExceededException.Limit.MEMORY, held + " bytes held", visited, held);
+        }
+    }
+
+    // called by engines that wait on something other than their own
+    // expansions, such as other processes, every so often while they
+    // wait; looks at the clock every time
+    protected void checkWaiting(long visited, long bytes) {
+        if (cancelled)
+            throw new CancellationException("Search cancelled");
+        checkTime(visited, bytes);
+    }
+
+    private void checkTime(long visited, long bytes) {
+        long now = System.nanoTime();
+        if (deadlineNanos != NO_DEADLINE && now - deadlineNanos > 0)
+            exceeded(BudgetExceededException.Limit.TIME, (now - searchNanos) / 1_000_000 + " ms searched", visited, bytes);
+    }
+
+    // stop the search, keeping what it did so far in the metrics
+    protected void exceeded(BudgetExceededException.Limit limit, String message, long visited, long bytes) {
+        uniqueCounter = (int) visited;
+        metrics.finish(false, metrics.expanded(), totalCounter, visited, bytes);
+        throw new BudgetExceededException(limit, "Budget exceeded: " + message, metrics);
+    }
+
+    // find shortest path; a search that runs out of states or memory is
+    // handed to the fallback solver if there is one
     public Collection<Configuration> solve(Configuration config) {
+        return solve(config, System.nanoTime(), NO_DEADLINE);
+    }
+
+    // find shortest path, stopping at deadline at the latest; the
+    // fallback gets whatever time this search left. start is when the
+    // whole solve started, so time is reported for all of it
+    private Collection<Configuration> solve(Configuration config, long start, long deadline) {
+        searchNanos = start;
+        checks = 0;
+        deadlineNanos = deadline;
+        if (budget.getMaxMillis() != Long.MAX_VALUE) {
+            long own = System.nanoTime() + Math.min(budget.getMaxMillis(), Long.MAX_VALUE / 2_000_000) * 1_000_000;
+            if (deadline == NO_DEADLINE || own - deadline < 0)
+                deadlineNanos = own;
+        }
+        try {
+            return search(config);
+        } catch (BudgetExceededException e) {
+            if (fallback == null || e.getLimit() == BudgetExceededException.Limit.TIME)
+                throw e;
+        }
+
+        // the exhausted search is garbage by now; what the fallback did
+        // replaces it in the metrics, whether it finishes or not. whoever
+        // follows this search's layers follows the fallback's as well
+        int fallbackTotal = fallback.totalCounter;
+        fallback.metrics.setListener(metrics.getListener());
+        try {
+            Collection<Configuration> path = fallback.solve(config, searchNanos, deadlineNanos);
+            uniqueCounter = fallback.uniqueCounter;
+            return path;
+        } finally {
+            totalCounter += fallback.totalCounter - fallbackTotal;
+            metrics.copy(fallback.metrics);
+        }
+    }
+
+    // breadth first search for a shortest path
+    protected Collection<Configuration> search(Configuration config) {
+        if (config instanceof PackedConfiguration)
+            return solvePacked((PackedConfiguration) config);
+
         //start node
         Configuration startConfig = config;
 
         // end node
-        Configuration finalConfig = null;
+        Configuration finalConfig = config.isSolution() ? config : null;
 
-        // queue of configs to process
-        List<Configuration> queue = new LinkedList<>();
-        queue.add(config);
+        // every config seen by id in discovery order; the queue holds ids
+        List<Configuration> configs = new ArrayList<>();
+        configs.add(config);
+        Frontier queue = frontiers.get();
+        queue.add(0, 0);
 
         //map of configs
         Map<Configuration, Configuration> predecessors = new HashMap<>();
         predecessors.put(config, null);
 
-        // process queue
-        while (!queue.isEmpty()) {
-            Configuration current = queue.remove(0);
+        // configs left in the layer being expanded
+        metrics.start(totalCounter);
+        int depth = 0;
+        int frontier = 1;
+        int remaining = 1;
+        int expanded = 0;
 
-            // check if solution
-            if (current.isSolution()) {
-                finalConfig = current;
-                break;
+        // process queue; a solution is caught as soon as it is generated
+        while (finalConfig == null && !queue.isEmpty()) {
+            if (remaining == 0) {
+                metrics.layer(depth++, frontier, expanded, totalCounter, predecessors.size(), -1);
+                frontier = remaining = queue.size();
             }
+            checkLimits(predecessors.size(), -1);
+            Configuration current = configs.get(queue.poll());
+            remaining--;
+            expanded++;
+            int childDepth = depth + 1;
 
             // go through neighbors
-            for (Configuration child : current.getNeighbors()) {
+            boolean searching = current.forEachNeighbor(child -> {
                 this.totalCounter++;
-                if (!predecessors.containsKey(child)) {
-                    predecessors.put(child, current);
-                    queue.add(child);
-                }
-            }
+                if (predecessors.containsKey(child))
+                    return true;
+                predecessors.put(child, current);
+                queue.add(configs.size(), childDepth);
+                configs.add(child);
+                return !child.isSolution();
+            });
+
+            // check if solution
+            if (!searching)
+                finalConfig = configs.get(configs.size() - 1);
         }
 
         // path from start to end node
@@ -64,6 +273,119 @@ public class Solver {
         }
 
         uniqueCounter = predecessors.size();
+        metrics.layer(depth, frontier, expanded, totalCounter, uniqueCounter, -1);
+        metrics.finish(!path.isEmpty(), expanded, totalCounter, uniqueCounter, -1);
         return path;
     }
+
+    // find shortest path, keeping only packed keys of the configs seen
+    private List<Configuration> solvePacked(PackedConfiguration config) {
+        // the queue holds arena ids
+        long[] key = new long[config.keyLength()];
+        config.writeKey(key, 0);
+        long[] startKey = key.clone();
+        String puzzle = checkpoint != null ? describe.apply(config) : null;
+        Checkpoint resumed = readCheckpoint(puzzle, startKey);
+        StateArena arena = resumed != null ? resumed.arena : new StateArena(config.keyLength());
+        Frontier queue = frontiers.get();
+
+        // end node
+        int finalId = StateArena.NONE;
+
+        // ids left in the layer being expanded
+        int depth = 0;
+        int frontier = 1;
+        int remaining = 1;
+        int expanded = 0;
+        if (resumed == null) {
+            arena.add(key, 0, StateArena.NONE);
+            queue.add(0, 0);
+            if (config.isSolution())
+                finalId = 0;
+        } else {
+            // the layer to expand is the newest ids
+            totalCounter = resumed.totalCounter;
+            depth = resumed.depth;
+            expanded = resumed.expanded;
+            frontier = remaining = resumed.frontier;
+            for (int id = arena.size() - frontier; id < arena.size(); ++id)
+                queue.add(id, depth);
+        }
+        metrics.start(totalCounter);
+        long lastCheckpoint = System.nanoTime();
+
+        // process queue; a solution is caught as soon as it is generated
+        while (finalId == StateArena.NONE && !queue.isEmpty()) {
+            if (remaining == 0) {
+                metrics.layer(depth++, frontier, expanded, totalCounter, arena.size(), arena.bytes() + queue.bytes());
+                frontier = remaining = queue.size();
+                if (checkpoint != null && System.nanoTime() - lastCheckpoint >= checkpointMillis * 1_000_000) {
+                    writeCheckpoint(new Checkpoint(arena, depth, frontier, totalCounter, expanded), puzzle, startKey);
+                    lastCheckpoint = System.nanoTime();
+                }
+            }
+            checkLimits(arena.size(), arena.bytes() + queue.bytes());
+            int parent = queue.poll();
+            remaining--;
+            expanded++;
+            int childDepth = depth + 1;
+
+            // go through neighbors
+            boolean searching = arena.get(config, parent).forEachNeighbor(child -> {
+                this.totalCounter++;
+                ((PackedConfiguration) child).writeKey(key, 0);
+                int id = arena.add(key, 0, parent);
+                if (id < 0)
+                    return true;
+                queue.add(id, childDepth);
+                return !child.isSolution();
+            });
+
+            // check if solution
+            if (!searching)
+                finalId = arena.size() - 1;
+        }
+
+        // construct path, rebuilding only the configs on it
+        List<Configuration> path = new ArrayList<>();
+        for (int id = finalId; id != StateArena.NONE; id = arena.parent(id))
+            path.add(arena.get(config, id));
+        Collections.reverse(path);
+
+        uniqueCounter = arena.size();
+        metrics.layer(depth, frontier, expanded, totalCounter, uniqueCounter, arena.bytes() + queue.bytes());
+        metrics.finish(finalId != StateArena.NONE, expanded, totalCounter, uniqueCounter, arena.bytes() + queue.bytes());
+        deleteCheckpoint();
+        return path;
+    }
+
+    // snapshot this search left, or null if there is none
+    private Checkpoint readCheckpoint(String puzzle, long[] startKey) {
+        if (checkpoint == null)
+            return null;
+        try {
+            return Checkpoint.read(checkpoint, puzzle, startKey);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Checkpoint failed: " + e.getMessage(), e);
+        }
+    }
+
+    // streamed from the arena, so the search is never held twice
+    private void writeCheckpoint(Checkpoint snapshot, String puzzle, long[] startKey) {
+        try {
+            snapshot.write(checkpoint, puzzle, startKey);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Checkpoint failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void deleteCheckpoint() {
+        if (checkpoint == null)
+            return;
+        try {
+            Files.deleteIfExists(checkpoint);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Checkpoint failed: " + e.getMessage(), e);
+        }
+    }
 }
\ No newline at end of file
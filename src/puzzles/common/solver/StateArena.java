@@ -0,0 +1,229 @@
+package puzzles.common.solver;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Packed keys of every configuration a search has discovered. Each key
+ * gets a dense int id in discovery order; keys and parent ids live in
+ * primitive arrays and an open-addressing table maps a key to its id.
+ */
+public class StateArena {
+    /** no parent; used for the start configuration */
+    public final static int NONE = -1;
+
+    /** longs per key */
+    private final int width;
+
+    /** keys, width longs per id */
+    private long[] keys;
+
+    /** parent id of each id */
+    private int[] parents;
+
+    /** number of ids handed out */
+    private int size;
+
+    /** hash table of id + 1; 0 is an empty slot */
+    private int[] table;
+
+    /**
+     * Constructor
+     *
+     * @param width longs per key
+     */
+    public StateArena(int width){
+        this.width = width;
+        this.keys = new long[1024 * width];
+        this.parents = new int[1024];
+        this.table = new int[2048];
+    }
+
+    /**
+     * @return number of keys stored
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * @return longs per key
+     */
+    public int width(){
+        return width;
+    }
+
+    /**
+     * @return bytes held by the arena's arrays
+     */
+    public long bytes(){
+        return (long) keys.length * Long.BYTES + (long) parents.length * Integer.BYTES
+                + (long) table.length * Integer.BYTES;
+    }
+
+    /**
+     * @param id id of a key
+     * @return id of its parent; NONE for a root
+     */
+    public int parent(int id){
+        return parents[id];
+    }
+
+    /**
+     * Rebuilds the configuration stored under an id
+     *
+     * @param prototype any configuration of the puzzle
+     * @param id id of the key
+     * @return the configuration
+     */
+    public Configuration get(PackedConfiguration prototype, int id){
+        return prototype.readKey(keys, id * width);
+    }
+
+    /**
+     * Copies the key stored under an id
+     *
+     * @param id id of the key
+     * @param dest array the key is copied to
+     * @param offset index of the first long in dest
+     */
+    public void copyKey(int id, long[] dest, int offset){
+        System.arraycopy(keys, id * width, dest, offset, width);
+    }
+
+    /**
+     * Looks up a key
+     *
+     * @param key array holding the key
+     * @param offset index of the first long of the key
+     * @return id of the key; -1 if it is not stored
+     */
+    public int find(long[] key, int offset){
+        int mask = table.length - 1;
+        for(int slot = hash(key, offset) & mask; table[slot] != 0; slot = (slot + 1) & mask){
+            int id = table[slot] - 1;
+            if(matches(id, key, offset))
+                return id;
+        }
+        return -1;
+    }
+
+    /**
+     * Stores a key if it is not already stored
+     *
+     * @param key array holding the key
+     * @param offset index of the first long of the key
+     * @param parent id of the parent; NONE for a root
+     * @return the new id; -1 if the key was already stored
+     */
+    public int add(long[] key, int offset, int parent){
+        int mask = table.length - 1;
+        int slot = hash(key, offset) & mask;
+        for(; table[slot] != 0; slot = (slot + 1) & mask){
+            if(matches(table[slot] - 1, key, offset))
+                return -1;
+        }
+
+        if(size == parents.length){
+            parents = Arrays.copyOf(parents, size * 2);
+            keys = Arrays.copyOf(keys, size * 2 * width);
+        }
+        int id = size++;
+        System.arraycopy(key, offset, keys, id * width, width);
+        parents[id] = parent;
+        table[slot] = id + 1;
+
+        // keep the table at most half full
+        if(size * 2 > table.length)
+            rehash();
+        return id;
+    }
+
+    /**
+     * Streams the keys and parents out, without the hash table, so a
+     * copy of the arena is never held in memory
+     *
+     * @param out where the arena goes
+     * @throws IOException if out cannot be written
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(width);
+        out.writeInt(size);
+        for(int i = 0; i < size * width; ++i)
+            out.writeLong(keys[i]);
+        for(int id = 0; id < size; ++id)
+            out.writeInt(parents[id]);
+    }
+
+    /**
+     * Reads an arena written by write, rebuilding its hash table
+     *
+     * @param in where the arena comes from
+     * @return the arena, with the same ids
+     * @throws IOException if in cannot be read or holds no arena
+     */
+    public static StateArena read(DataInput in) throws IOException {
+        int width = in.readInt();
+        int size = in.readInt();
+        if(width < 1 || size < 0)
+            throw new IOException("Not a state arena");
+        StateArena arena = new StateArena(width);
+        int capacity = Math.max(arena.parents.length, size);
+        arena.keys = new long[capacity * width];
+        arena.parents = new int[capacity];
+        for(int i = 0; i < size * width; ++i)
+            arena.keys[i] = in.readLong();
+        for(int id = 0; id < size; ++id)
+            arena.parents[id] = in.readInt();
+        arena.size = size;
+        arena.buildTable(Math.max(arena.table.length, Integer.highestOneBit(Math.max(size, 1)) * 4));
+        return arena;
+    }
+
+    /**
+     * Checks a stored key against another key
+     */
+    private boolean matches(int id, long[] key, int offset){
+        int base = id * width;
+        for(int i = 0; i < width; ++i)
+            if(keys[base + i] != key[offset + i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Doubles the hash table
+     */
+    private void rehash(){
+        buildTable(table.length * 2);
+    }
+
+    /**
+     * Hashes every id into a new table
+     *
+     * @param length length of the table; a power of two more than
+     *               twice the size
+     */
+    private void buildTable(int length){
+        table = new int[length];
+        int mask = table.length - 1;
+        for(int id = 0; id < size; ++id){
+            int slot = hash(keys, id * width) & mask;
+            while(table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Mixes the longs of a key into a table index
+     */
+    private int hash(long[] key, int offset){
+        long h = 0;
+        for(int i = 0; i < width; ++i)
+            h = (h + key[offset + i]) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
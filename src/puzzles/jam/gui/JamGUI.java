@@ -1,26 +1,31 @@
 package puzzles.jam.gui;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import puzzles.common.Observer;
-import puzzles.common.solver.Configuration;
 import puzzles.common.solver.Solver;
 import puzzles.jam.model.Car;
 import puzzles.jam.model.JamConfig;
 import puzzles.jam.model.JamModel;
+import puzzles.jam.model.JamPuzzle;
+import puzzles.jam.solver.JamHinter;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.HashMap;
-import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 public class JamGUI extends Application  implements Observer<JamModel>  {
@@ -30,6 +35,22 @@ public class JamGUI extends Application  implements Observer<JamModel>  {
     /** current file */
     private String file;
 
+    /** current puzzle as parsed; resets start from it */
+    private JamPuzzle puzzle;
+
+    /** finds hints for the current file */
+    private JamHinter hinter;
+
+    /** runs hint searches off the FX thread, one at a time */
+    private final ExecutorService hintExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "JamGUI hint");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** solver of the running hint search; null if there is none */
+    private Solver hintSolver;
+
     /** true if car is current selected */
     private boolean selected;
 
@@ -63,6 +84,9 @@ public class JamGUI extends Application  implements Observer<JamModel>  {
     /** jam message */
     private Label message;
 
+    /** shown while a hint search runs */
+    private ProgressIndicator progress;
+
     /** BUTTON_FONT_SIZE */
     private final static int BUTTON_FONT_SIZE = 20;
 
@@ -103,7 +127,9 @@ public class JamGUI extends Application  implements Observer<JamModel>  {
      */
     public void init() throws FileNotFoundException {
         this.file = getParameters().getRaw().get(0);
-        this.jam = new JamModel(file);
+        this.puzzle = JamPuzzle.load(file);
+        this.jam = new JamModel(this.puzzle);
+        this.hinter = new JamHinter(file);
         this.buttons = new Button[this.jam.board.length][this.jam.board[0].length];
         this.selected = false;
         loadColors();
@@ -175,6 +201,96 @@ public class JamGUI extends Application  implements Observer<JamModel>  {
         });
     }
 
+    /**
+     * Cancels the running hint search, if any. Its result is dropped
+     * even if it finishes before it notices.
+     */
+    private void cancelHint(){
+        if(this.hintSolver != null){
+            this.hintSolver.cancel();
+            this.hintSolver = null;
+        }
+        this.progress.setVisible(false);
+    }
+
+    /**
+     * Starts a hint search from the current board on the hint thread
+     */
+    private void startHint(){
+        cancelHint();
+        JamConfig start = this.jam.makeConfig();
+        JamHinter hinter = this.hinter;
+        Solver solver = JamHinter.makeSolver();
+        this.hintSolver = solver;
+
+        // layers finish on the hint thread; show them on the FX thread
+        solver.getMetrics().setListener(layer -> Platform.runLater(() -> {
+            if(this.hintSolver == solver)
+                this.message.setText("Searching: depth " + layer.depth + ", " + layer.visited + " configs");
+        }));
+
+        this.message.setText("Searching...");
+        this.progress.setVisible(true);
+        this.hintExecutor.submit(() -> {
+            try {
+                JamConfig next = hinter.nextStep(start, solver);
+                Platform.runLater(() -> applyHint(solver, start, next));
+            } catch (CancellationException e) {
+                // a newer hint, load or reset took over
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> failHint(solver, e));
+            }
+        });
+    }
+
+    /**
+     * Reports a hint search that failed, on the FX thread, if it is
+     * still wanted
+     *
+     * @param solver solver of the failed search
+     * @param e why it failed
+     */
+    private void failHint(Solver solver, RuntimeException e){
+        if(this.hintSolver != solver)
+            return;
+        this.hintSolver = null;
+        this.progress.setVisible(false);
+        this.message.setText("Hint failed: " + (e.getMessage() != null ? e.getMessage() : e.toString()));
+    }
+
+    /**
+     * Applies a finished hint on the FX thread if it is still wanted
+     *
+     * @param solver solver of the finished search
+     * @param start board the search started from
+     * @param next next config; null if there is no solution
+     */
+    private void applyHint(Solver solver, JamConfig start, JamConfig next){
+        if(this.hintSolver != solver)
+            return;
+        this.hintSolver = null;
+        this.progress.setVisible(false);
+
+        // the user moved while the search ran
+        if(!this.jam.makeConfig().equals(start))
+            this.message.setText("Board changed; hint discarded");
+        // if no solution
+        else if(next == null)
+            this.message.setText("No Solution");
+        else {
+            this.message.setText("Next Step!");
+
+            // turns config into model
+            this.jam = next.makeModel();
+
+            // adds new model as observer
+            this.jam.addObserver(this);
+
+            // updates GUI
+            update(this.jam);
+        }
+    }
+
     /**
      * Construct the layout for the game.
      *
@@ -204,6 +320,7 @@ public class JamGUI extends Application  implements Observer<JamModel>  {
         load.setText("Load");
         load.setStyle("-fx-font-size: " + BUTTON_FONT_SIZE);
         load.setOnAction(actionEvent -> {
+            cancelHint();
             FileChooser fileChooser = new FileChooser();
 
             // my path to "/data/jam"; feel free to change
@@ -222,7 +339,9 @@ public class JamGUI extends Application  implements Observer<JamModel>  {
 
             // create new model with new file
             try {
-                this.jam = new JamModel(this.file);
+                this.puzzle = JamPuzzle.load(this.file);
+                this.jam = new JamModel(this.puzzle);
+                this.hinter = new JamHinter(this.file);
             } catch (FileNotFoundException e) {
                 e.printStackTrace();
             }
@@ -258,12 +377,10 @@ public class JamGUI extends Application  implements Observer<JamModel>  {
         reset.setText("Reset");
         reset.setStyle("-fx-font-size: " + BUTTON_FONT_SIZE);
         reset.setOnAction(actionEvent -> {
-            // create new model with same file
-            try {
-                this.jam = new JamModel(file);
-            } catch (FileNotFoundException e) {
-                e.printStackTrace();
-            }
+            cancelHint();
+
+            // create new model from the same puzzle
+            this.jam = new JamModel(this.puzzle);
 
             // enable all buttons
             for (int row=0; row < this.jam.board.length; ++row) {
@@ -284,34 +401,15 @@ public class JamGUI extends Application  implements Observer<JamModel>  {
         this.hint = new Button();
         hint.setText("Hint");
         hint.setStyle("-fx-font-size: " + BUTTON_FONT_SIZE);
-        hint.setOnAction(actionEvent -> {
-            this.message.setText("Next Step!");
-
-            // turns model into config
-            JamConfig config = this.jam.makeConfig();
-            Solver solver = new Solver();
-            List<Configuration> steps = (List<Configuration>) solver.solve(config);
-
-            // if no solution
-            if(steps.isEmpty())
-                this.message.setText("No Solution");
-            else {
-                // finds next step in puzzle
-                JamConfig nextConfig = (JamConfig) steps.get(1);
+        hint.setOnAction(actionEvent -> startHint());
 
-                // turns config into model
-                this.jam = nextConfig.makeModel();
-
-                // adds new model as observer
-                this.jam.addObserver(this);
-
-                // updates GUI
-                update(this.jam);
-            }
-        });
+        // initialize progress indicator
+        this.progress = new ProgressIndicator(ProgressIndicator.INDETERMINATE_PROGRESS);
+        progress.setMaxSize(ICON_SIZE / 2, ICON_SIZE / 2);
+        progress.setVisible(false);
 
         // finish statusBar
-        statusBar.getChildren().addAll(load, reset, hint);
+        statusBar.getChildren().addAll(load, reset, hint, progress);
         statusBar.setAlignment(Pos.CENTER);
         borderPane.setBottom(statusBar);
 
@@ -341,6 +439,15 @@ public class JamGUI extends Application  implements Observer<JamModel>  {
         stage.show();
     }
 
+    /**
+     * Stops any running hint search when the window closes
+     */
+    @Override
+    public void stop() {
+        cancelHint();
+        this.hintExecutor.shutdownNow();
+    }
+
     /**
      * updates the Model and GUI
      *
@@ -73,6 +73,24 @@ public class Car {
         return false;
     }
 
+    /**
+     * Bitboard mask of the cells this car covers; cell (row, col) is
+     * bit row * 8 + col, so a horizontal car shifts by 1 and a vertical
+     * car by 8 when it slides one cell
+     *
+     * @return occupancy mask of this car
+     */
+    public long mask(){
+        long mask = 0;
+        for(int i = 0; i < length; ++i){
+            if(horizontal)
+                mask |= 1L << (frontRow * 8 + frontCol + i);
+            else
+                mask |= 1L << ((frontRow + i) * 8 + frontCol);
+        }
+        return mask;
+    }
+
     /**
      * Move car in model
      *
@@ -1,20 +1,36 @@
 package puzzles.jam.model;
 
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.PackedConfiguration;
 
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.*;
+import java.util.function.Predicate;
 
-public class JamConfig implements Configuration {
+public class JamConfig implements PackedConfiguration {
     /** empty cell value display */
     public final static String EMPTY_CELL = ".";
 
-    /** square board of cars */
-    private String[][] board;
+    /** largest supported board dimension; the whole board fits in one long */
+    public final static int MAX_DIM = 8;
 
-    /** list of cars */
-    private List<Car> cars;
+    /** bits per car in a packed key; positions never exceed MAX_DIM - 1 */
+    private final static int KEY_BITS = 3;
+
+    /** cars per long of a packed key */
+    private final static int CARS_PER_LONG = 64 / KEY_BITS;
+
+    /** board size and cars, shared by every config of the puzzle */
+    private final JamLayout layout;
+
+    /** position of each car along its lane */
+    private final byte[] positions;
+
+    /** occupied cells of the board, one bit per cell at row * 8 + col */
+    private final long occupied;
+
+    /** Zobrist hash; XOR of the layout's hash bits of every car position */
+    private final long hash;
 
     /**
      * Constructor
@@ -23,42 +39,20 @@ public class JamConfig implements Configuration {
      * @throws FileNotFoundException if file not found
      */
     public JamConfig(String filename) throws FileNotFoundException {
-        Scanner f = new Scanner(new File(filename));
-        int rows = f.nextInt();
-        int cols = f.nextInt();
-        this.board = new String[rows][cols];
-        this.cars = new ArrayList<>(f.nextInt());
-
-        // read in cars
-        while(f.hasNext()){
-            String name = f.next();
-            int initRow = f.nextInt();
-            int initCol = f.nextInt();
-            int lastRow = f.nextInt();
-            int lastCol = f.nextInt();
-            Car car = new Car(name, initRow, initCol, lastRow, lastCol);
-            cars.add(car);
-        }
-
-        // populate board with cars
-        for(Car car: cars){
-            for(int r = 0; r < board.length; ++r){
-                for(int c = 0; c < board[r].length; ++c){
-                    if(car.isThere(r, c))
-                        board[r][c] = car.name;
-                }
-            }
-        }
+        this(JamPuzzle.load(filename));
+    }
 
-        // populate board with empty cells
-        for(int r = 0; r < board.length; ++r){
-            for(int c = 0; c < board.length; ++c){
-                if(board[r][c] == null){
-                    board[r][c] = EMPTY_CELL;
-                }
-            }
-        }
-        f.close();
+    /**
+     * Constructor
+     * the start of a parsed puzzle
+     *
+     * @param puzzle the puzzle
+     */
+    public JamConfig(JamPuzzle puzzle){
+        this.layout = puzzle.getLayout();
+        this.positions = positionsOf(puzzle.makeCars());
+        this.occupied = occupancyOf(layout, positions);
+        this.hash = hashOf(layout, positions);
     }
 
     /**
@@ -67,39 +61,106 @@ public class JamConfig implements Configuration {
      * @param copy JamConfig instance
      */
     public JamConfig(JamConfig copy){
-        this.board = new String[copy.board.length][copy.board[0].length];
-        this.cars = new ArrayList<>();
+        this(copy.layout, copy.positions.clone(), copy.occupied, copy.hash);
+    }
 
-        // copy board
-        for(int r = 0; r < board.length; ++r){
-            for(int c = 0; c < board[r].length; ++c){
-                this.board[r][c] = copy.board[r][c];
-            }
-        }
+    public JamConfig(String[][] board, List<Car> cars){
+        this.layout = new JamLayout(board.length, board[0].length, cars);
+        this.positions = positionsOf(cars);
+        this.occupied = occupancyOf(layout, positions);
+        this.hash = hashOf(layout, positions);
+    }
 
-        // copy cars
-        for(Car car: copy.cars){
-            Car tempCar = new Car(car.name, car.frontRow, car.frontCol, car.lastRow, car.lastCol);
-            this.cars.add(tempCar);
-        }
+    /**
+     * Constructor
+     * Used by JamRanker to rebuild a config from its rank
+     *
+     * @param layout the layout
+     * @param positions position of each car along its lane
+     */
+    JamConfig(JamLayout layout, byte[] positions){
+        this(layout, positions, occupancyOf(layout, positions), hashOf(layout, positions));
     }
 
-    public JamConfig(String[][] board, List<Car> cars){
-        this.board = new String[board.length][board[0].length];
-        this.cars = new ArrayList<>();
+    /**
+     * Constructor
+     * Used for successors, which share the layout of their parent
+     *
+     * @param layout the layout
+     * @param positions position of each car along its lane
+     * @param occupied occupied cells
+     * @param hash Zobrist hash
+     */
+    private JamConfig(JamLayout layout, byte[] positions, long occupied, long hash){
+        this.layout = layout;
+        this.positions = positions;
+        this.occupied = occupied;
+        this.hash = hash;
+    }
 
-        // copy board
-        for(int r = 0; r < board.length; ++r){
-            for(int c = 0; c < board[r].length; ++c){
-                this.board[r][c] = board[r][c];
-            }
+    /**
+     * Finds where each car sits along its lane
+     *
+     * @param cars list of cars
+     * @return position of each car
+     */
+    private static byte[] positionsOf(List<Car> cars){
+        byte[] positions = new byte[cars.size()];
+        for(int i = 0; i < cars.size(); ++i){
+            Car car = cars.get(i);
+            positions[i] = (byte) (car.horizontal ? car.frontCol : car.frontRow);
         }
+        return positions;
+    }
 
-        // copy cars
-        for(Car car: cars){
-            Car tempCar = new Car(car.name, car.frontRow, car.frontCol, car.lastRow, car.lastCol);
-            this.cars.add(tempCar);
-        }
+    /**
+     * Builds the occupancy bitboard of a set of positions
+     *
+     * @param layout the layout
+     * @param positions position of each car
+     * @return occupied cells
+     */
+    private static long occupancyOf(JamLayout layout, byte[] positions){
+        long occupied = 0;
+        for(int i = 0; i < positions.length; ++i)
+            occupied |= layout.mask(i, positions[i]);
+        return occupied;
+    }
+
+    /**
+     * Builds the Zobrist hash of a set of positions
+     *
+     * @param layout the layout
+     * @param positions position of each car
+     * @return hash
+     */
+    private static long hashOf(JamLayout layout, byte[] positions){
+        long hash = 0;
+        for(int i = 0; i < positions.length; ++i)
+            hash ^= layout.zobrist(i, positions[i]);
+        return hash;
+    }
+
+    /**
+     * @return the layout shared by every config of this puzzle
+     */
+    public JamLayout getLayout(){
+        return layout;
+    }
+
+    /**
+     * @param car index of the car in the layout
+     * @return position of the car along its lane
+     */
+    public int getPosition(int car){
+        return positions[car];
+    }
+
+    /**
+     * @return occupied cells, one bit per cell at row * 8 + col
+     */
+    public long getOccupied(){
+        return occupied;
     }
 
     /**
@@ -109,10 +170,26 @@ public class JamConfig implements Configuration {
      * @returns JamModel
      */
     public JamModel makeModel(){
-        JamModel model = new JamModel(this.board,this.cars);
+        JamModel model = new JamModel(toBoard(), makeCars());
         return model;
     }
 
+    /**
+     * Creates a neighbor with one car slid by a single cell
+     *
+     * @param car index of the car being moved
+     * @param pos new position of the car
+     * @param from mask of the car before the move
+     * @param to mask of the car after the move
+     * @returns the new JamConfig
+     */
+    private JamConfig slide(int car, int pos, long from, long to){
+        byte[] moved = positions.clone();
+        moved[car] = (byte) pos;
+        long movedHash = hash ^ layout.zobrist(car, positions[car]) ^ layout.zobrist(car, pos);
+        return new JamConfig(layout, moved, (occupied & ~from) | to, movedHash);
+    }
+
     /**
      * getSuccessors
      *
@@ -120,69 +197,68 @@ public class JamConfig implements Configuration {
      */
     @Override
     public Collection<Configuration> getNeighbors() {
-        Set<Configuration> list = new HashSet<>();
+        List<Configuration> list = new ArrayList<>();
+        forEachNeighbor(list::add);
+        return list;
+    }
 
+    /**
+     * Generates each successor and hands it straight to the visitor
+     *
+     * @param visitor called with each successor; returns false to stop
+     * @return false if the visitor stopped early; true otherwise
+     */
+    @Override
+    public boolean forEachNeighbor(Predicate<Configuration> visitor) {
         // go through each car
-        for(Car car: cars){
-            int i = cars.indexOf(car);
-
-            // horizontal
-            if(car.horizontal){
-
-                // move car left
-                if(car.frontCol != 0){
-                    if (board[car.frontRow][car.frontCol - 1].equals(EMPTY_CELL)) {
-                        JamConfig temp = new JamConfig(this);
-                        Car tempCar = temp.cars.get(i);
-                        tempCar.move(true, false, false, false);
-                        temp.board[car.frontRow][car.frontCol - 1] = car.name;
-                        temp.board[car.frontRow][car.lastCol] = EMPTY_CELL;
-                        list.add(temp);
-                    }
-                }
+        for(int i = 0; i < positions.length; ++i){
+            int pos = positions[i];
+            long mask = layout.mask(i, pos);
 
-                // move car right
-                if(car.lastCol != board[0].length-1){
-                    if (board[car.frontRow][car.lastCol + 1].equals(EMPTY_CELL)) {
-                        JamConfig temp = new JamConfig(this);
-                        Car tempCar = temp.cars.get(i);
-                        tempCar.move(false, true, false, false);
-                        temp.board[car.frontRow][car.lastCol + 1] = car.name;
-                        temp.board[car.frontRow][car.frontCol] = EMPTY_CELL;
-                        list.add(temp);
-                    }
-                }
+            // move car left or up; only the newly covered cell can collide
+            if(pos > 0){
+                long to = layout.mask(i, pos - 1);
+                if((occupied & to & ~mask) == 0 && !visitor.test(slide(i, pos - 1, mask, to)))
+                    return false;
             }
 
-            // vertical
-            else{
-
-                // move car up
-                if(car.frontRow != 0){
-                    if (board[car.frontRow - 1][car.frontCol].equals(EMPTY_CELL)) {
-                        JamConfig temp = new JamConfig(this);
-                        Car tempCar = temp.cars.get(i);
-                        tempCar.move(false, false, true, false);
-                        temp.board[car.frontRow - 1][car.frontCol] = car.name;
-                        temp.board[car.lastRow][car.frontCol] = EMPTY_CELL;
-                        list.add(temp);
-                    }
-                }
-
-                // move car down
-                if(car.lastRow != board.length-1){
-                    if (board[car.lastRow + 1][car.frontCol].equals(EMPTY_CELL)) {
-                        JamConfig temp = new JamConfig(this);
-                        Car tempCar = temp.cars.get(i);
-                        tempCar.move(false, false, false, true);
-                        temp.board[car.lastRow + 1][car.frontCol] = car.name;
-                        temp.board[car.frontRow][car.frontCol] = EMPTY_CELL;
-                        list.add(temp);
-                    }
-                }
+            // move car right or down
+            if(pos < layout.maxPosition(i)){
+                long to = layout.mask(i, pos + 1);
+                if((occupied & to & ~mask) == 0 && !visitor.test(slide(i, pos + 1, mask, to)))
+                    return false;
             }
         }
-        return list;
+        return true;
+    }
+
+    @Override
+    public int keyLength() {
+        return (positions.length + CARS_PER_LONG - 1) / CARS_PER_LONG;
+    }
+
+    /**
+     * Writes the positions of the cars by index. Names live only in the
+     * layout, so renaming cars never changes a key, and cars in one lane
+     * never pass each other, so no two reachable configs differ only by
+     * swapping alike cars; the key needs no canonical form.
+     *
+     * @param dest array the key is written to
+     * @param offset index of the first long of the key
+     */
+    @Override
+    public void writeKey(long[] dest, int offset) {
+        Arrays.fill(dest, offset, offset + keyLength(), 0);
+        for(int i = 0; i < positions.length; ++i)
+            dest[offset + i / CARS_PER_LONG] |= (long) positions[i] << (KEY_BITS * (i % CARS_PER_LONG));
+    }
+
+    @Override
+    public JamConfig readKey(long[] src, int offset) {
+        byte[] positions = new byte[this.positions.length];
+        for(int i = 0; i < positions.length; ++i)
+            positions[i] = (byte) ((src[offset + i / CARS_PER_LONG] >>> (KEY_BITS * (i % CARS_PER_LONG))) & ((1 << KEY_BITS) - 1));
+        return new JamConfig(layout, positions);
     }
 
     /**
@@ -193,30 +269,111 @@ public class JamConfig implements Configuration {
     @Override
     public boolean isSolution() {
         //checks for an "X" in the last column
-        for(int r = 0; r < board.length; r++)
-            if(board[r][board[0].length-1].equals("X"))
-                return true;
-        return false;
+        int target = layout.getTarget();
+        return target >= 0 && (layout.mask(target, positions[target]) & layout.getGoal()) != 0;
+    }
+
+    /**
+     * Hands every solved config with each car in its lane and the cars
+     * of each lane in the order they stand now to a visitor, one at a
+     * time, as the goals of a backward search. Cars can never change
+     * lanes or pass one another, so every solved config reachable from
+     * this one is among them.
+     *
+     * @param visitor called with each goal; returns false to stop
+     * @return false if the visitor stopped early; true otherwise
+     */
+    public boolean forEachGoal(Predicate<Configuration> visitor){
+        // cars in order of orientation, lane and position
+        Integer[] order = new Integer[positions.length];
+        for(int i = 0; i < order.length; ++i)
+            order[i] = i;
+        Arrays.sort(order, Comparator.comparing((Integer car) -> !layout.isHorizontal(car))
+                .thenComparingInt(layout::getLane)
+                .thenComparingInt(car -> positions[car]));
+
+        return placeGoals(order, 0, new byte[positions.length], 0, visitor);
+    }
+
+    /**
+     * Places the cars from order[k] on in every way that keeps each lane's
+     * order and the target at the goal, visiting each full placement
+     *
+     * @param order cars grouped by lane
+     * @param k index in order of the car to place
+     * @param placed positions of the cars placed so far
+     * @param occupied cells they cover
+     * @param visitor called with each full placement; returns false to stop
+     * @return false if the visitor stopped early; true otherwise
+     */
+    private boolean placeGoals(Integer[] order, int k, byte[] placed, long occupied, Predicate<Configuration> visitor){
+        if(k == order.length)
+            return visitor.test(new JamConfig(layout, placed.clone()));
+        int car = order[k];
+        int first = 0;
+        if(k > 0){
+            int before = order[k - 1];
+            if(layout.isHorizontal(before) == layout.isHorizontal(car) && layout.getLane(before) == layout.getLane(car))
+                first = placed[before] + layout.getLength(before);
+        }
+        for(int pos = first; pos <= layout.maxPosition(car); ++pos){
+            long mask = layout.mask(car, pos);
+            if((occupied & mask) != 0 || (car == layout.getTarget() && (mask & layout.getGoal()) == 0))
+                continue;
+            placed[car] = (byte) pos;
+            if(!placeGoals(order, k + 1, placed, occupied | mask, visitor))
+                return false;
+        }
+        return true;
     }
 
     @Override
     public boolean equals(Object other){
         if(other instanceof JamConfig){
             JamConfig jam = (JamConfig) other;
-            for(int r = 0; r < board.length; ++r) {
-                for (int c = 0; c < board[r].length; ++c) {
-                    if(!this.board[r][c].equals(jam.board[r][c]))
-                        return false;
-                }
-            }
-            return true;
+            return this.hash == jam.hash
+                    && this.occupied == jam.occupied
+                    && Arrays.equals(this.positions, jam.positions)
+                    && this.layout.equals(jam.layout);
         }
         return false;
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * Builds the cars at their current positions
+     *
+     * @return list of cars
+     */
+    private List<Car> makeCars(){
+        List<Car> cars = new ArrayList<>(positions.length);
+        for(int i = 0; i < positions.length; ++i)
+            cars.add(layout.makeCar(i, positions[i]));
+        return cars;
+    }
+
+    /**
+     * Renders the cars onto a board of names
+     *
+     * @return board of car names and empty cells
+     */
+    private String[][] toBoard(){
+        String[][] board = new String[layout.getRows()][layout.getCols()];
+        for(String[] row: board)
+            Arrays.fill(row, EMPTY_CELL);
+        for(Car car: makeCars()){
+            for(int i = 0; i < car.length; ++i){
+                if(car.horizontal)
+                    board[car.frontRow][car.frontCol + i] = car.name;
+                else
+                    board[car.frontRow + i][car.frontCol] = car.name;
+            }
+        }
+        return board;
     }
 
     /**
@@ -226,6 +383,7 @@ public class JamConfig implements Configuration {
      */
     public String toString(){
         StringBuilder builder = new StringBuilder();
+        String[][] board = toBoard();
 
         for(int r = 0; r < board.length; ++r){
             for(int c = 0; c < board[r].length; ++c){
@@ -0,0 +1,222 @@
+package puzzles.jam.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * The unchanging part of a puzzle: board size and each car's name,
+ * orientation, length and lane. One layout is shared by every JamConfig
+ * of a puzzle, so a configuration only has to store where each car sits
+ * along its lane.
+ */
+public final class JamLayout {
+    /** name of the car that has to reach the last column */
+    public final static String TARGET = "X";
+
+    /** number of rows */
+    private final int rows;
+
+    /** number of columns */
+    private final int cols;
+
+    /** name of each car */
+    private final String[] names;
+
+    /** true if car is horizontal; false if vertical */
+    private final boolean[] horizontal;
+
+    /** length of each car */
+    private final int[] lengths;
+
+    /** fixed row of a horizontal car or fixed column of a vertical car */
+    private final int[] lanes;
+
+    /** bitboard of each car at each position along its lane */
+    private final long[][] masks;
+
+    /** random bits of each car at each position; XORed together they hash a config */
+    private final long[][] zobrist;
+
+    /** cells of the last column */
+    private final long goal;
+
+    /** index of the target car; -1 if there is none */
+    private final int target;
+
+    /**
+     * Constructor
+     *
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param cars cars in the order their positions are stored
+     */
+    public JamLayout(int rows, int cols, List<Car> cars){
+        if(rows > JamConfig.MAX_DIM || cols > JamConfig.MAX_DIM)
+            throw new IllegalArgumentException("Board is " + rows + "x" + cols +
+                    "; at most " + JamConfig.MAX_DIM + "x" + JamConfig.MAX_DIM + " is supported");
+        this.rows = rows;
+        this.cols = cols;
+        this.names = new String[cars.size()];
+        this.horizontal = new boolean[cars.size()];
+        this.lengths = new int[cars.size()];
+        this.lanes = new int[cars.size()];
+        this.masks = new long[cars.size()][];
+        this.zobrist = new long[cars.size()][];
+
+        // fixed seed so a config hashes the same in every run
+        SplittableRandom random = new SplittableRandom(0x4A414DL);
+
+        int target = -1;
+        for(int i = 0; i < cars.size(); ++i){
+            Car car = cars.get(i);
+            names[i] = car.name;
+            horizontal[i] = car.horizontal;
+            lengths[i] = car.length;
+            lanes[i] = car.horizontal ? car.frontRow : car.frontCol;
+            if(car.name.equals(TARGET))
+                target = i;
+
+            // one mask per cell the car can start at
+            int positions = (car.horizontal ? cols : rows) - car.length + 1;
+            masks[i] = new long[positions];
+            zobrist[i] = new long[positions];
+            for(int pos = 0; pos < positions; ++pos){
+                masks[i][pos] = makeCar(i, pos).mask();
+                zobrist[i][pos] = random.nextLong();
+            }
+        }
+        this.target = target;
+
+        long goal = 0;
+        for(int r = 0; r < rows; ++r)
+            goal |= 1L << (r * 8 + cols - 1);
+        this.goal = goal;
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int getRows(){
+        return rows;
+    }
+
+    /**
+     * @return number of columns
+     */
+    public int getCols(){
+        return cols;
+    }
+
+    /**
+     * @return number of cars
+     */
+    public int size(){
+        return names.length;
+    }
+
+    /**
+     * @param car index of the car
+     * @return name of the car
+     */
+    public String getName(int car){
+        return names[car];
+    }
+
+    /**
+     * @param car index of the car
+     * @return true if car is horizontal; false if vertical
+     */
+    public boolean isHorizontal(int car){
+        return horizontal[car];
+    }
+
+    /**
+     * @param car index of the car
+     * @return length of the car
+     */
+    public int getLength(int car){
+        return lengths[car];
+    }
+
+    /**
+     * @param car index of the car
+     * @return row of a horizontal car or column of a vertical car
+     */
+    public int getLane(int car){
+        return lanes[car];
+    }
+
+    /**
+     * @param car index of the car
+     * @return largest position the car can take along its lane
+     */
+    public int maxPosition(int car){
+        return masks[car].length - 1;
+    }
+
+    /**
+     * @param car index of the car
+     * @param pos position of the car along its lane
+     * @return bitboard of the cells the car covers there
+     */
+    public long mask(int car, int pos){
+        return masks[car][pos];
+    }
+
+    /**
+     * @param car index of the car
+     * @param pos position of the car along its lane
+     * @return hash bits of the car at that position
+     */
+    public long zobrist(int car, int pos){
+        return zobrist[car][pos];
+    }
+
+    /**
+     * @return bitboard of the last column
+     */
+    public long getGoal(){
+        return goal;
+    }
+
+    /**
+     * @return index of the target car; -1 if there is none
+     */
+    public int getTarget(){
+        return target;
+    }
+
+    /**
+     * Builds a Car at a position along its lane
+     *
+     * @param car index of the car
+     * @param pos position of the car along its lane
+     * @return new Car
+     */
+    public Car makeCar(int car, int pos){
+        if(horizontal[car])
+            return new Car(names[car], lanes[car], pos, lanes[car], pos + lengths[car] - 1);
+        return new Car(names[car], pos, lanes[car], pos + lengths[car] - 1, lanes[car]);
+    }
+
+    @Override
+    public boolean equals(Object other){
+        if(this == other)
+            return true;
+        if(other instanceof JamLayout){
+            JamLayout layout = (JamLayout) other;
+            return rows == layout.rows && cols == layout.cols
+                    && Arrays.equals(names, layout.names)
+                    && Arrays.equals(horizontal, layout.horizontal)
+                    && Arrays.equals(lengths, layout.lengths)
+                    && Arrays.equals(lanes, layout.lanes);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(names) + Arrays.hashCode(lanes);
+    }
+}
@@ -2,12 +2,11 @@ package puzzles.jam.model;
 
 import puzzles.common.Observer;
 
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Scanner;
 
 public class JamModel {
     /** the collection of observers of this model */
@@ -29,42 +28,30 @@ public class JamModel {
      * @throws FileNotFoundException if file not found
      */
     public JamModel(String filename) throws FileNotFoundException {
-        Scanner f = new Scanner(new File(filename));
-        int rows = f.nextInt();
-        int cols = f.nextInt();
-        this.board = new String[rows][cols];
-        this.cars = new ArrayList<>(f.nextInt());
+        this(JamPuzzle.load(filename));
+    }
 
-        // read in cars
-        while(f.hasNext()){
-            String name = f.next();
-            int initRow = f.nextInt();
-            int initCol = f.nextInt();
-            int lastRow = f.nextInt();
-            int lastCol = f.nextInt();
-            Car car = new Car(name, initRow, initCol, lastRow, lastCol);
-            cars.add(car);
-        }
+    /**
+     * Constructor
+     * the start of a parsed puzzle; used for resets, which need no I/O
+     *
+     * @param puzzle the puzzle
+     */
+    public JamModel(JamPuzzle puzzle){
+        this.board = new String[puzzle.getRows()][puzzle.getCols()];
+        this.cars = puzzle.makeCars();
 
-        // populate board with cars
+        // populate board with empty cells, then the cells each car covers
+        for(String[] row: board)
+            Arrays.fill(row, EMPTY_CELL);
         for(Car car: cars){
-            for(int r = 0; r < board.length; ++r){
-                for(int c = 0; c < board[r].length; ++c){
-                    if(car.isThere(r, c))
-                        board[r][c] = car.name;
-                }
-            }
-        }
-
-        // populate board with empty cells
-        for(int r = 0; r < board.length; ++r){
-            for(int c = 0; c < board.length; ++c){
-                if(board[r][c] == null){
-                    board[r][c] = EMPTY_CELL;
-                }
+            for(int i = 0; i < car.length; ++i){
+                if(car.horizontal)
+                    board[car.frontRow][car.frontCol + i] = car.name;
+                else
+                    board[car.frontRow + i][car.frontCol] = car.name;
             }
         }
-        f.close();
     }
 
     /**
@@ -0,0 +1,138 @@
+package puzzles.jam.model;
+
+import puzzles.common.solver.Configuration;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Move notation for a solution: one token per move such as A+2 or X-1,
+ * a car name followed by how many cells it slides, + for right or down
+ * and - for left or up. Slides of the same car in the same direction
+ * one after another make a single move, so A+1 A+1 is written A+2.
+ */
+public final class JamMoves {
+    /** a car name, a direction and a number of cells */
+    private final static Pattern MOVE = Pattern.compile("(\\S+?)([+-])(\\d+)");
+
+    private JamMoves(){
+    }
+
+    /**
+     * Turns the configs of a solution into moves
+     *
+     * @param steps JamConfigs from the start to the solution
+     * @return one token per move
+     */
+    public static List<String> fromSteps(List<? extends Configuration> steps){
+        List<String> moves = new ArrayList<>();
+        StringBuilder builder = new StringBuilder();
+        forEachMove(steps, (layout, car, cells) -> {
+            builder.setLength(0);
+            appendMove(builder, layout.getName(car), cells);
+            moves.add(builder.toString());
+        });
+        return moves;
+    }
+
+    /**
+     * Writes the moves of a solution separated by spaces
+     *
+     * @param steps JamConfigs from the start to the solution
+     * @param out where the moves go; not flushed
+     * @throws IOException if out cannot be written
+     */
+    public static void write(List<? extends Configuration> steps, Writer out) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        forEachMove(steps, (layout, car, cells) -> {
+            if (builder.length() > 0)
+                builder.append(' ');
+            appendMove(builder, layout.getName(car), cells);
+        });
+        out.append(builder);
+    }
+
+    /**
+     * Plays moves on a model, checking each is legal
+     *
+     * @param model the model, changed in place
+     * @param moves tokens separated by whitespace
+     * @throws IllegalArgumentException at the first token that is not a
+     * move or not a legal one
+     */
+    public static void replay(JamModel model, String moves){
+        for (String token : moves.trim().split("\\s+")) {
+            if (token.isEmpty())
+                continue;
+            Matcher matcher = MOVE.matcher(token);
+            if (!matcher.matches())
+                throw new IllegalArgumentException("Not a move: " + token);
+            Car car = findCar(model, matcher.group(1));
+            if (car == null)
+                throw new IllegalArgumentException("No car " + matcher.group(1) + ": " + token);
+            int cells = Integer.parseInt(matcher.group(3));
+            if (matcher.group(2).equals("-"))
+                cells = -cells;
+
+            // the cell the front or back of the car ends up on
+            int row = car.horizontal ? car.frontRow : cells < 0 ? car.frontRow + cells : car.lastRow + cells;
+            int col = !car.horizontal ? car.frontCol : cells < 0 ? car.frontCol + cells : car.lastCol + cells;
+            if (cells == 0 || row < 0 || col < 0 || row >= model.board.length || col >= model.board[0].length
+                    || !model.isValidMove(car, row, col))
+                throw new IllegalArgumentException("Illegal move: " + token);
+            model.makeMove(car, row, col);
+        }
+    }
+
+    /**
+     * Called with each merged move of a solution
+     */
+    private interface MoveVisitor {
+        void move(JamLayout layout, int car, int cells);
+    }
+
+    /**
+     * Finds the car moved between each pair of configs and merges slides
+     * of the same car in the same direction
+     */
+    private static void forEachMove(List<? extends Configuration> steps, MoveVisitor visitor){
+        JamLayout layout = null;
+        int car = -1;
+        int cells = 0;
+        for (int i = 1; i < steps.size(); ++i) {
+            JamConfig before = (JamConfig) steps.get(i - 1);
+            JamConfig after = (JamConfig) steps.get(i);
+            layout = after.getLayout();
+            for (int moved = 0; moved < layout.size(); ++moved) {
+                int delta = after.getPosition(moved) - before.getPosition(moved);
+                if (delta == 0)
+                    continue;
+                if (moved == car && (delta > 0) == (cells > 0)) {
+                    cells += delta;
+                } else {
+                    if (car >= 0)
+                        visitor.move(layout, car, cells);
+                    car = moved;
+                    cells = delta;
+                }
+            }
+        }
+        if (car >= 0)
+            visitor.move(layout, car, cells);
+    }
+
+    private static void appendMove(StringBuilder builder, String name, int cells){
+        builder.append(name).append(cells > 0 ? '+' : '-').append(Math.abs(cells));
+    }
+
+    private static Car findCar(JamModel model, String name){
+        for (Car car : model.cars)
+            if (car.name.equals(name))
+                return car;
+        return null;
+    }
+}
@@ -0,0 +1,267 @@
+package puzzles.jam.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Many puzzles in one binary file, so a batch over millions of puzzles
+ * opens one file instead of millions. Every puzzle is a record of the
+ * same size, so puzzle n is found by arithmetic; a loaded pack is
+ * memory-mapped and a puzzle is decoded straight from the mapping.
+ *
+ * The file is a header, the records, an index of where each puzzle's
+ * name starts and the names. A record is the rows, columns and number
+ * of cars followed by four bytes per car: its one letter name, its
+ * length with the top bit set if it is horizontal, its lane and its
+ * position along the lane. Unused car slots are zero.
+ */
+public class JamPack {
+    /** file name ending of a pack */
+    public final static String SUFFIX = ".pack";
+
+    /** first int of a pack file */
+    private final static int MAGIC = 0x4A50414B;
+
+    /** bytes before the records */
+    private final static int HEADER = 16;
+
+    /** bytes at the start of a record and per car */
+    private final static int RECORD_HEADER = 4;
+    private final static int CAR_BYTES = 4;
+
+    /** set in a car's length byte if the car is horizontal */
+    private final static int HORIZONTAL = 0x80;
+
+    /** the pack file */
+    private final Path file;
+
+    /** the mapped file */
+    private final ByteBuffer buffer;
+
+    /** number of puzzles */
+    private final int size;
+
+    /** bytes per record */
+    private final int recordSize;
+
+    /** where the name index starts */
+    private final int namesIndex;
+
+    private JamPack(Path file, ByteBuffer buffer, int size, int recordSize){
+        this.file = file;
+        this.buffer = buffer;
+        this.size = size;
+        this.recordSize = recordSize;
+        this.namesIndex = HEADER + size * recordSize;
+    }
+
+    /**
+     * Maps a pack written by write or convert
+     *
+     * @param file the pack file
+     * @return the pack
+     * @throws IOException if the file cannot be read or is not a pack
+     */
+    public static JamPack load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER || buffer.getInt(0) != MAGIC)
+                throw new IOException("Not a puzzle pack: " + file);
+            int size = buffer.getInt(4);
+            int recordSize = buffer.getInt(8);
+            if (size < 0 || recordSize < RECORD_HEADER)
+                throw new IOException("Corrupt puzzle pack header: " + file);
+            long namesIndex = HEADER + (long) size * recordSize;
+            if (buffer.capacity() < namesIndex + (size + 1L) * Integer.BYTES
+                    || buffer.capacity() != namesIndex + (size + 1L) * Integer.BYTES
+                    + buffer.getInt((int) namesIndex + size * Integer.BYTES))
+                throw new IOException("Truncated puzzle pack: " + file);
+            return new JamPack(file, buffer, size, recordSize);
+        }
+    }
+
+    /**
+     * Packs puzzle text files, reading each once
+     *
+     * @param puzzles the puzzle files
+     * @param file the pack file
+     * @throws FileNotFoundException if a puzzle cannot be read
+     * @throws IOException if the pack cannot be written
+     * @throws IllegalArgumentException if a puzzle cannot be packed
+     */
+    public static void convert(List<Path> puzzles, Path file) throws IOException {
+        Records records = new Records();
+        for (Path puzzle : puzzles)
+            records.add(puzzle.toString(), JamPuzzle.load(puzzle.toString()));
+        records.write(file);
+    }
+
+    /**
+     * Packs puzzles
+     *
+     * @param names name of each puzzle, such as the file it came from
+     * @param puzzles the puzzles
+     * @param file the pack file
+     * @throws IOException if the pack cannot be written
+     * @throws IllegalArgumentException if a puzzle cannot be packed
+     */
+    public static void write(List<String> names, List<JamPuzzle> puzzles, Path file) throws IOException {
+        Records records = new Records();
+        for (int i = 0; i < puzzles.size(); ++i)
+            records.add(names.get(i), puzzles.get(i));
+        records.write(file);
+    }
+
+    /**
+     * @return number of puzzles
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * @param n index of the puzzle
+     * @return name of the puzzle
+     */
+    public String getName(int n){
+        int start = buffer.getInt(namesIndex + n * Integer.BYTES);
+        int end = buffer.getInt(namesIndex + (n + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        buffer.get(namesIndex + (size + 1) * Integer.BYTES + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes a puzzle from the mapping
+     *
+     * @param n index of the puzzle
+     * @return the puzzle
+     */
+    public JamPuzzle get(int n){
+        int record = HEADER + n * recordSize;
+        int rows = buffer.get(record);
+        int cols = buffer.get(record + 1);
+        Car[] cars = new Car[buffer.get(record + 2)];
+        for (int i = 0; i < cars.length; ++i) {
+            int at = record + RECORD_HEADER + i * CAR_BYTES;
+            String name = String.valueOf((char) buffer.get(at));
+            int length = buffer.get(at + 1) & ~HORIZONTAL & 0xFF;
+            int lane = buffer.get(at + 2);
+            int pos = buffer.get(at + 3);
+            if ((buffer.get(at + 1) & HORIZONTAL) != 0)
+                cars[i] = new Car(name, lane, pos, lane, pos + length - 1);
+            else
+                cars[i] = new Car(name, pos, lane, pos + length - 1, lane);
+        }
+        return new JamPuzzle(file, null, rows, cols, cars);
+    }
+
+    /**
+     * @param n index of the puzzle
+     * @return the start of the puzzle
+     */
+    public JamConfig getConfig(int n){
+        return new JamConfig(get(n));
+    }
+
+    /**
+     * Puzzles encoded so far; records are kept as short as their cars
+     * until the longest is known
+     */
+    private static class Records {
+        private final List<String> names = new ArrayList<>();
+        private byte[] bytes = new byte[1024];
+        private int length;
+        private int[] starts = new int[64];
+        private int maxCars;
+
+        void add(String name, JamPuzzle puzzle) {
+            List<Car> cars = puzzle.makeCars();
+            if (puzzle.getRows() > Byte.MAX_VALUE || puzzle.getCols() > Byte.MAX_VALUE || cars.size() > Byte.MAX_VALUE)
+                throw new IllegalArgumentException(name + ": too big to pack");
+            int needed = RECORD_HEADER + cars.size() * CAR_BYTES;
+            if (length + needed > bytes.length)
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + needed));
+            if (names.size() + 1 >= starts.length)
+                starts = Arrays.copyOf(starts, starts.length * 2);
+
+            bytes[length] = (byte) puzzle.getRows();
+            bytes[length + 1] = (byte) puzzle.getCols();
+            bytes[length + 2] = (byte) cars.size();
+            int at = length + RECORD_HEADER;
+            for (Car car : cars) {
+                if (car.name.length() != 1 || car.name.charAt(0) > Byte.MAX_VALUE)
+                    throw new IllegalArgumentException(name + ": car name " + car.name + " is not one letter");
+                bytes[at] = (byte) car.name.charAt(0);
+                bytes[at + 1] = (byte) (car.length | (car.horizontal ? HORIZONTAL : 0));
+                bytes[at + 2] = (byte) (car.horizontal ? car.frontRow : car.frontCol);
+                bytes[at + 3] = (byte) (car.horizontal ? car.frontCol : car.frontRow);
+                at += CAR_BYTES;
+            }
+            length = at;
+            names.add(name);
+            starts[names.size()] = length;
+            maxCars = Math.max(maxCars, cars.size());
+        }
+
+        // written to a temporary file that then replaces the pack, so an
+        // interrupted write leaves an older pack as it was
+        void write(Path file) throws IOException {
+            int recordSize = RECORD_HEADER + maxCars * CAR_BYTES;
+            if ((long) HEADER + (long) names.size() * recordSize > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Too many puzzles for one pack: " + names.size());
+            Path directory = file.toAbsolutePath().getParent();
+            Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                writeTo(temp, recordSize);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        private void writeTo(Path file, int recordSize) throws IOException {
+            try (OutputStream stream = Files.newOutputStream(file);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                out.writeInt(MAGIC);
+                out.writeInt(names.size());
+                out.writeInt(recordSize);
+                out.writeInt(0);
+
+                // records, padded to the same size
+                byte[] padding = new byte[recordSize];
+                for (int i = 0; i < names.size(); ++i) {
+                    int recordLength = starts[i + 1] - starts[i];
+                    out.write(bytes, starts[i], recordLength);
+                    out.write(padding, 0, recordSize - recordLength);
+                }
+
+                // name index, then the names
+                List<byte[]> encoded = new ArrayList<>(names.size());
+                int offset = 0;
+                for (String name : names) {
+                    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                    encoded.add(bytes);
+                    out.writeInt(offset);
+                    offset += bytes.length;
+                }
+                out.writeInt(offset);
+                for (byte[] bytes : encoded)
+                    out.write(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package puzzles.jam.model;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parsed puzzle file: board size and the cars where they start.
+ * Immutable, so JamConfig and JamModel build from the same parse, and
+ * the last few parses are cached by path and modification time, so
+ * resets and reloads of an unchanged file do not read it again.
+ *
+ * A file is the number of rows, columns and cars followed by each car's
+ * name, front row, front column, last row and last column, all
+ * separated by whitespace.
+ */
+public final class JamPuzzle {
+    /** most parsed puzzles kept */
+    private final static int CACHE_SIZE = 64;
+
+    /** recently parsed puzzles by absolute path, least recently used first */
+    private final static Map<Path, JamPuzzle> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, JamPuzzle> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    /** the file */
+    private final Path path;
+
+    /** modification time of the file when it was parsed */
+    private final FileTime modified;
+
+    /** number of rows */
+    private final int rows;
+
+    /** number of columns */
+    private final int cols;
+
+    /** cars where they start; copied before they are handed out */
+    private final Car[] cars;
+
+    /** layout of the puzzle; built on first use */
+    private volatile JamLayout layout;
+
+    /**
+     * Constructor
+     * Used by the parser and by JamPack
+     *
+     * @param path the file the puzzle came from; null if none
+     * @param modified modification time of the file; null if it is not
+     *                 cached
+     * @param rows number of rows
+     * @param cols number of columns
+     * @param cars cars where they start; not copied
+     */
+    JamPuzzle(Path path, FileTime modified, int rows, int cols, Car[] cars){
+        this.path = path;
+        this.modified = modified;
+        this.rows = rows;
+        this.cols = cols;
+        this.cars = cars;
+    }
+
+    /**
+     * Gets a puzzle, parsing the file only if it is not cached or has
+     * changed since it was
+     *
+     * @param filename the filename
+     * @return the puzzle
+     * @throws FileNotFoundException if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a puzzle
+     */
+    public static JamPuzzle load(String filename) throws FileNotFoundException {
+        Path path = Path.of(filename).toAbsolutePath().normalize();
+        try {
+            FileTime modified = Files.getLastModifiedTime(path);
+            synchronized (cache) {
+                JamPuzzle puzzle = cache.get(path);
+                if (puzzle != null && puzzle.modified.equals(modified))
+                    return puzzle;
+            }
+
+            JamPuzzle puzzle = parse(path, modified, Files.readAllBytes(path));
+            synchronized (cache) {
+                cache.put(path, puzzle);
+            }
+            return puzzle;
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(filename);
+        } catch (IOException e) {
+            throw new FileNotFoundException(filename + " (" + e.getMessage() + ")");
+        }
+    }
+
+    /**
+     * Parses the text of a puzzle file, as written by format
+     *
+     * @param text the text
+     * @return the puzzle, with no file
+     * @throws IllegalArgumentException if the text is not a puzzle
+     */
+    public static JamPuzzle parse(String text){
+        return parse(null, null, text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * The puzzle that starts where a config is
+     *
+     * @param config the config
+     * @return the puzzle, with no file
+     */
+    public static JamPuzzle of(JamConfig config){
+        JamLayout layout = config.getLayout();
+        Car[] cars = new Car[layout.size()];
+        for (int i = 0; i < cars.length; ++i)
+            cars[i] = layout.makeCar(i, config.getPosition(i));
+        return new JamPuzzle(null, null, layout.getRows(), layout.getCols(), cars);
+    }
+
+    /**
+     * Parses the bytes of a puzzle file
+     *
+     * @param path the file, for messages; null if there is none
+     * @param modified modification time of the file
+     * @param bytes contents of the file
+     * @return the puzzle
+     * @throws IllegalArgumentException if the bytes are not a puzzle
+     */
+    private static JamPuzzle parse(Path path, FileTime modified, byte[] bytes){
+        Tokens in = new Tokens(path, bytes);
+        int rows = in.nextInt();
+        int cols = in.nextInt();
+        if (rows == 0 || cols == 0)
+            throw new IllegalArgumentException(path + ": the board needs at least one row and one column");
+        // the count is only a hint; every car takes more than a byte of the file
+        List<Car> cars = new ArrayList<>(Math.min(in.nextInt(), bytes.length));
+
+        // read in cars
+        while (in.hasNext()) {
+            String name = in.next();
+            int initRow = in.nextInt();
+            int initCol = in.nextInt();
+            int lastRow = in.nextInt();
+            int lastCol = in.nextInt();
+            if (initRow < 0 || initCol < 0 || lastRow >= rows || lastCol >= cols
+                    || initRow > lastRow || initCol > lastCol || (initRow != lastRow && initCol != lastCol))
+                throw new IllegalArgumentException(path + ": car " + name + " does not fit the board");
+            cars.add(new Car(name, initRow, initCol, lastRow, lastCol));
+        }
+        return new JamPuzzle(path, modified, rows, cols, cars.toArray(new Car[0]));
+    }
+
+    /**
+     * @return the puzzle as the text of a puzzle file
+     */
+    public String format(){
+        StringBuilder builder = new StringBuilder();
+        builder.append(rows).append(' ').append(cols).append('\n').append(cars.length).append('\n');
+        for (Car car : cars)
+            builder.append(car.name).append(' ').append(car.frontRow).append(' ').append(car.frontCol)
+                    .append(' ').append(car.lastRow).append(' ').append(car.lastCol).append('\n');
+        return builder.toString();
+    }
+
+    /**
+     * @return the file; null for a puzzle that did not come from one
+     */
+    public Path getPath(){
+        return path;
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int getRows(){
+        return rows;
+    }
+
+    /**
+     * @return number of columns
+     */
+    public int getCols(){
+        return cols;
+    }
+
+    /**
+     * @return number of cars
+     */
+    public int size(){
+        return cars.length;
+    }
+
+    /**
+     * @return new copies of the cars where they start
+     */
+    public List<Car> makeCars(){
+        List<Car> copies = new ArrayList<>(cars.length);
+        for (Car car : cars)
+            copies.add(new Car(car.name, car.frontRow, car.frontCol, car.lastRow, car.lastCol));
+        return copies;
+    }
+
+    /**
+     * @return the layout shared by every config of this puzzle
+     * @throws IllegalArgumentException if the board is too big to solve
+     */
+    public JamLayout getLayout(){
+        JamLayout layout = this.layout;
+        if (layout == null)
+            this.layout = layout = new JamLayout(rows, cols, makeCars());
+        return layout;
+    }
+
+    /**
+     * Splits the bytes of a file into whitespace separated tokens
+     */
+    private static class Tokens {
+        private final Path path;
+        private final byte[] bytes;
+        private int pos;
+
+        Tokens(Path path, byte[] bytes) {
+            this.path = path;
+            this.bytes = bytes;
+        }
+
+        boolean hasNext() {
+            while (pos < bytes.length && bytes[pos] <= ' ')
+                pos++;
+            return pos < bytes.length;
+        }
+
+        String next() {
+            if (!hasNext())
+                throw new IllegalArgumentException(path + ": ends too early");
+            int start = pos;
+            while (pos < bytes.length && bytes[pos] > ' ')
+                pos++;
+            return new String(bytes, start, pos - start, StandardCharsets.US_ASCII);
+        }
+
+        int nextInt() {
+            if (!hasNext())
+                throw new IllegalArgumentException(path + ": ends too early");
+            int start = pos;
+            int value = 0;
+            while (pos < bytes.length && bytes[pos] >= '0' && bytes[pos] <= '9') {
+                int digit = bytes[pos++] - '0';
+                if (value > (Integer.MAX_VALUE - digit) / 10)
+                    throw new IllegalArgumentException(path + ": number at byte " + start + " is too big");
+                value = value * 10 + digit;
+            }
+            if (pos == start || (pos < bytes.length && bytes[pos] > ' '))
+                throw new IllegalArgumentException(path + ": expected a number at byte " + start);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package puzzles.jam.model;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Ranking;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Numbers the configs of a puzzle densely enough for a bitmap of visited
+ * configs. Cars sharing a lane can never pass one another, so a lane's
+ * cars always stand in the same order and a placement of them is a
+ * choice of where the gaps go. Each lane's placement is ranked among
+ * all of them with the combinatorial number system and the lane ranks
+ * are combined as digits of a mixed-radix number. Only configs where a
+ * horizontal and a vertical car overlap get a rank without being real.
+ */
+public final class JamRanker implements Ranking {
+    /** binomial coefficients up to a lane of MAX_DIM empty cells and MAX_DIM cars */
+    private final static long[][] CHOOSE = new long[2 * JamConfig.MAX_DIM + 1][2 * JamConfig.MAX_DIM + 1];
+
+    static {
+        for (int n = 0; n < CHOOSE.length; ++n) {
+            CHOOSE[n][0] = 1;
+            for (int k = 1; k <= n; ++k)
+                CHOOSE[n][k] = CHOOSE[n - 1][k - 1] + CHOOSE[n - 1][k];
+        }
+    }
+
+    /** the layout of every config ranked */
+    private final JamLayout layout;
+
+    /** cars of each lane that has any, front to back */
+    private final int[][] lanes;
+
+    /** empty cells of each lane */
+    private final int[] free;
+
+    /** placements of each lane */
+    private final long[] counts;
+
+    /** product of the counts */
+    private final long size;
+
+    /**
+     * Constructor
+     *
+     * @param start a config of the puzzle, which fixes the order of the
+     *              cars in each lane
+     * @throws IllegalArgumentException if the puzzle has too many configs
+     * to rank in a long
+     */
+    public JamRanker(JamConfig start){
+        this.layout = start.getLayout();
+
+        // group the cars by orientation and lane, each group in the order it stands
+        List<List<Integer>> groups = new ArrayList<>();
+        for (int i = 0; i < 2 * JamConfig.MAX_DIM; ++i)
+            groups.add(new ArrayList<>());
+        for (int car = 0; car < layout.size(); ++car)
+            groups.get((layout.isHorizontal(car) ? 0 : JamConfig.MAX_DIM) + layout.getLane(car)).add(car);
+
+        List<int[]> lanes = new ArrayList<>();
+        for (List<Integer> group : groups) {
+            if (group.isEmpty())
+                continue;
+            group.sort(Comparator.comparingInt(start::getPosition));
+            lanes.add(group.stream().mapToInt(Integer::intValue).toArray());
+        }
+        this.lanes = lanes.toArray(new int[0][]);
+        this.free = new int[this.lanes.length];
+        this.counts = new long[this.lanes.length];
+
+        long size = 1;
+        for (int l = 0; l < this.lanes.length; ++l) {
+            int[] cars = this.lanes[l];
+            free[l] = layout.maxPosition(cars[0]) + layout.getLength(cars[0]);
+            for (int car : cars)
+                free[l] -= layout.getLength(car);
+            counts[l] = CHOOSE[free[l] + cars.length][cars.length];
+            if (size > Long.MAX_VALUE / counts[l])
+                throw new IllegalArgumentException("Too many configs to rank");
+            size *= counts[l];
+        }
+        this.size = size;
+    }
+
+    @Override
+    public long size(){
+        return size;
+    }
+
+    @Override
+    public long rank(Configuration config){
+        JamConfig jam = (JamConfig) config;
+        long rank = 0;
+        for (int l = 0; l < lanes.length; ++l) {
+            // the i-th car, less the lengths of the cars ahead of it plus i,
+            // gives an increasing sequence: a combination of the lane's cells
+            long laneRank = 0;
+            int ahead = 0;
+            for (int i = 0; i < lanes[l].length; ++i) {
+                int car = lanes[l][i];
+                laneRank += CHOOSE[jam.getPosition(car) - ahead + i][i + 1];
+                ahead += layout.getLength(car);
+            }
+            rank = rank * counts[l] + laneRank;
+        }
+        return rank;
+    }
+
+    @Override
+    public JamConfig unrank(long rank){
+        byte[] positions = new byte[layout.size()];
+        for (int l = lanes.length - 1; l >= 0; --l) {
+            long laneRank = rank % counts[l];
+            rank /= counts[l];
+
+            // the largest combination element first, then undo the shift
+            int[] cars = lanes[l];
+            int element = free[l] + cars.length - 1;
+            int ahead = 0;
+            for (int car : cars)
+                ahead += layout.getLength(car);
+            for (int i = cars.length - 1; i >= 0; --i) {
+                while (CHOOSE[element][i + 1] > laneRank)
+                    element--;
+                laneRank -= CHOOSE[element][i + 1];
+                ahead -= layout.getLength(cars[i]);
+                positions[cars[i]] = (byte) (element - i + ahead);
+                element--;
+            }
+        }
+        return new JamConfig(layout, positions);
+    }
+}
@@ -1,15 +1,14 @@
 package puzzles.jam.ptui;
 
 import puzzles.common.Observer;
-import puzzles.common.solver.Configuration;
-import puzzles.common.solver.Solver;
+import puzzles.common.solver.BudgetExceededException;
 import puzzles.jam.model.Car;
 import puzzles.jam.model.JamConfig;
 import puzzles.jam.model.JamModel;
+import puzzles.jam.model.JamPuzzle;
+import puzzles.jam.solver.JamHinter;
 
-import java.io.File;
 import java.io.FileNotFoundException;
-import java.util.List;
 import java.util.Scanner;
 
 public class JamPTUI implements Observer<JamModel> {
@@ -19,6 +18,12 @@ public class JamPTUI implements Observer<JamModel> {
     /** current file */
     private String file;
 
+    /** current puzzle as parsed; resets start from it */
+    private JamPuzzle puzzle;
+
+    /** finds hints for the current file */
+    private JamHinter hinter;
+
     /** true if car is current selected */
     private boolean selected;
 
@@ -39,7 +44,9 @@ public class JamPTUI implements Observer<JamModel> {
      */
     public JamPTUI(String initFile) throws FileNotFoundException {
         this.file = initFile;
-        this.jam = new JamModel(this.file);
+        this.puzzle = JamPuzzle.load(this.file);
+        this.jam = new JamModel(this.puzzle);
+        this.hinter = new JamHinter(this.file);
         this.selected = false;
         this.selectedRow = 0;
         this.selectedCol = 0;
@@ -87,18 +94,20 @@ public class JamPTUI implements Observer<JamModel> {
                 // load new file
                 else if(arg.equals("l")){
                     String newFile = in.next();
-                    try(Scanner f = new Scanner(new File(newFile))){
+                    try{
+                        this.puzzle = JamPuzzle.load(newFile);
                         this.file = newFile;
-                        this.jam = new JamModel(this.file);
+                        this.jam = new JamModel(this.puzzle);
+                        this.hinter = new JamHinter(this.file);
                     }
-                    catch(FileNotFoundException f){
+                    catch(FileNotFoundException | IllegalArgumentException f){
                         System.out.println("Failed to load: " + newFile);
                     }
                 }
 
                 // resets model
                 else if(arg.equals("r")){
-                    this.jam = new JamModel(this.file);
+                    this.jam = new JamModel(this.puzzle);
                 }
 
                 // if game is won
@@ -118,16 +127,19 @@ public class JamPTUI implements Observer<JamModel> {
                 else if(arg.equals("h")){
                     System.out.println("Next Step!");
 
-                    // turns model into config
-                    JamConfig config = this.jam.makeConfig();
-                    Solver solver = new Solver();
-                    List<Configuration> steps = (List<Configuration>) solver.solve(config);
-
-                    // finds next step in puzzle
-                    JamConfig nextConfig = (JamConfig) steps.get(1);
+                    // finds next step in puzzle; gives up after JamHinter.HINT_MILLIS
+                    try{
+                        JamConfig nextConfig = this.hinter.nextStep(this.jam.makeConfig());
 
-                    // turns config into model
-                    this.jam = nextConfig.makeModel();
+                        // turns config into model
+                        if(nextConfig == null)
+                            System.out.println("No Solution");
+                        else
+                            this.jam = nextConfig.makeModel();
+                    }
+                    catch(BudgetExceededException e){
+                        System.out.println("No hint: " + e.getMessage());
+                    }
                 }
 
                 // select car or make move
@@ -174,8 +186,6 @@ public class JamPTUI implements Observer<JamModel> {
                 // update model
                 update(this.jam);
             }
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
         }
 
     }
@@ -0,0 +1,137 @@
+package puzzles.jam.solver;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Heuristic;
+import puzzles.jam.model.JamConfig;
+import puzzles.jam.model.JamLayout;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Cells X still has to slide, plus the fewest cells each car between X
+ * and the exit has to slide to clear X's row, plus one for every car
+ * that has to move out of the way of a blocker whichever way that
+ * blocker goes, followed recursively down the chain of blockers.
+ * Each car is counted once and each move slides one car by one cell,
+ * so the estimate is admissible and never weaker than BlockerHeuristic.
+ */
+public class BlockerChainHeuristic implements Heuristic {
+    @Override
+    public int estimate(Configuration config) {
+        JamConfig jam = (JamConfig) config;
+        JamLayout layout = jam.getLayout();
+        int x = layout.getTarget();
+        if (x < 0 || !layout.isHorizontal(x))
+            return 0;
+
+        // car on each cell
+        int[] owner = new int[64];
+        Arrays.fill(owner, -1);
+        for (int i = 0; i < layout.size(); ++i)
+            for (long cells = layout.mask(i, jam.getPosition(i)); cells != 0; cells &= cells - 1)
+                owner[Long.numberOfTrailingZeros(cells)] = i;
+
+        // cars known to move, and for each the cells one of which it has to leave
+        boolean[] counted = new boolean[layout.size()];
+        long[] leave = new long[layout.size()];
+        Deque<Integer> work = new ArrayDeque<>();
+        counted[x] = true;
+
+        int estimate = layout.maxPosition(x) - jam.getPosition(x);
+
+        // cars in X's row each slide at least far enough to clear it
+        for (long cells = BlockerHeuristic.pathOf(jam); cells != 0; cells &= cells - 1) {
+            int cell = Long.numberOfTrailingZeros(cells);
+            int car = owner[cell];
+            if (car >= 0 && !counted[car]) {
+                counted[car] = true;
+                leave[car] = 1L << cell;
+                estimate += fewestSteps(jam, car, cell);
+                work.add(car);
+            }
+        }
+
+        // a car in the way of every way a moving car can go has to move too
+        while (!work.isEmpty()) {
+            int car = work.poll();
+            long required = -1;
+            long[] reason = new long[layout.size()];
+            for (long cells = leave[car]; cells != 0; cells &= cells - 1) {
+                int cell = Long.numberOfTrailingZeros(cells);
+                for (int dir = -1; dir <= 1; dir += 2) {
+                    long sweep = sweep(jam, car, cell, dir);
+                    if (sweep == -1)
+                        continue;
+                    long occupants = 0;
+                    for (long swept = sweep; swept != 0; swept &= swept - 1) {
+                        int at = Long.numberOfTrailingZeros(swept);
+                        int other = owner[at];
+                        if (other >= 0) {
+                            occupants |= 1L << other;
+                            reason[other] |= 1L << at;
+                        }
+                    }
+                    required &= occupants;
+                }
+            }
+            if (required == -1)
+                continue;
+
+            for (; required != 0; required &= required - 1) {
+                int other = Long.numberOfTrailingZeros(required);
+                if (!counted[other]) {
+                    counted[other] = true;
+                    leave[other] = reason[other];
+                    estimate++;
+                    work.add(other);
+                }
+            }
+        }
+        return estimate;
+    }
+
+    /**
+     * Fewest single-cell slides that move a car off a cell
+     *
+     * @param jam the config
+     * @param car index of the car
+     * @param cell the cell, as row * 8 + col
+     * @return fewest slides; 1 if the car cannot leave the cell at all
+     */
+    private static int fewestSteps(JamConfig jam, int car, int cell) {
+        JamLayout layout = jam.getLayout();
+        int pos = jam.getPosition(car);
+        int at = layout.isHorizontal(car) ? cell % 8 : cell / 8;
+        int best = Integer.MAX_VALUE;
+        if (at - layout.getLength(car) >= 0)
+            best = pos - (at - layout.getLength(car));
+        if (at + 1 <= layout.maxPosition(car))
+            best = Math.min(best, at + 1 - pos);
+        return best == Integer.MAX_VALUE ? 1 : best;
+    }
+
+    /**
+     * Cells a car has to pass over to get off a cell in one direction
+     *
+     * @param jam the config
+     * @param car index of the car
+     * @param cell the cell, as row * 8 + col
+     * @param dir -1 to leave it towards the top or left; 1 for the other way
+     * @return bitboard of the cells; -1 if the car cannot go that way
+     */
+    private static long sweep(JamConfig jam, int car, int cell, int dir) {
+        JamLayout layout = jam.getLayout();
+        int pos = jam.getPosition(car);
+        int at = layout.isHorizontal(car) ? cell % 8 : cell / 8;
+        int target = dir < 0 ? at - layout.getLength(car) : at + 1;
+        if (target < 0 || target > layout.maxPosition(car))
+            return -1;
+
+        long cells = 0;
+        for (int p = Math.min(pos, target); p <= Math.max(pos, target); ++p)
+            cells |= layout.mask(car, p);
+        return cells & ~layout.mask(car, pos);
+    }
+}
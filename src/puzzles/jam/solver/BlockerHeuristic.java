@@ -0,0 +1,44 @@
+package puzzles.jam.solver;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Heuristic;
+import puzzles.jam.model.JamConfig;
+import puzzles.jam.model.JamLayout;
+
+/**
+ * Cells X still has to slide plus the number of cars between X and the
+ * exit. Every move slides one car by one cell, and each blocking car
+ * has to move at least once, so the estimate is admissible.
+ */
+public class BlockerHeuristic implements Heuristic {
+    @Override
+    public int estimate(Configuration config) {
+        JamConfig jam = (JamConfig) config;
+        JamLayout layout = jam.getLayout();
+        int x = layout.getTarget();
+        if (x < 0 || !layout.isHorizontal(x))
+            return 0;
+
+        long path = pathOf(jam);
+        int estimate = layout.maxPosition(x) - jam.getPosition(x);
+        for (int i = 0; i < layout.size(); ++i)
+            if (i != x && (layout.mask(i, jam.getPosition(i)) & path) != 0)
+                estimate++;
+        return estimate;
+    }
+
+    /**
+     * Cells between X and the exit
+     *
+     * @param jam the config
+     * @return bitboard of the cells X still has to pass over
+     */
+    static long pathOf(JamConfig jam) {
+        JamLayout layout = jam.getLayout();
+        int x = layout.getTarget();
+        long path = 0;
+        for (int col = jam.getPosition(x) + layout.getLength(x); col < layout.getCols(); ++col)
+            path |= 1L << (layout.getLane(x) * 8 + col);
+        return path;
+    }
+}
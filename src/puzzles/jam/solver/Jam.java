@@ -1,36 +1,288 @@
 package puzzles.jam.solver;
 
+import puzzles.common.solver.AStarSolver;
+import puzzles.common.solver.BidirectionalSolver;
+import puzzles.common.solver.BitmapSolver;
+import puzzles.common.solver.BucketFrontier;
+import puzzles.common.solver.BudgetExceededException;
 import puzzles.common.solver.Configuration;
+import puzzles.common.solver.DistanceTable;
+import puzzles.common.solver.DistributedSolver;
+import puzzles.common.solver.ExternalSolver;
+import puzzles.common.solver.Frontier;
+import puzzles.common.solver.IDAStarSolver;
+import puzzles.common.solver.LayeredFrontier;
+import puzzles.common.solver.ParallelSolver;
+import puzzles.common.solver.RingFrontier;
+import puzzles.common.solver.SearchBudget;
 import puzzles.common.solver.Solver;
 import puzzles.jam.model.JamConfig;
+import puzzles.jam.model.JamMoves;
+import puzzles.jam.model.JamPack;
+import puzzles.jam.model.JamPuzzle;
+import puzzles.jam.model.JamRanker;
 
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 
 public class Jam {
+    /** least time between two checkpoints of a search */
+    private final static long CHECKPOINT_MILLIS = 60_000;
+
+    /** time the IDA* fallback gets when no -seconds is given */
+    private final static long FALLBACK_MILLIS = 30_000;
+
     public static void main(String[] args) throws FileNotFoundException {
-        if (args.length != 1) {
-            System.out.println("Usage: java Jam filename");
-        } else {
-            String filename = args[0];
+        // optional flags before the filename
+        Supplier<Solver> engine = Solver::new;
+        Supplier<Frontier> frontier = RingFrontier::new;
+        boolean table = false;
+        boolean stats = false;
+        boolean boards = false;
+        long maxStates = Long.MAX_VALUE;
+        long maxBytes = Long.MAX_VALUE;
+        long maxMillis = Long.MAX_VALUE;
+        Path checkpoint = null;
+        boolean resume = false;
+        String filename = null;
+        List<String> batch = null;
+        List<String> pack = null;
+        for (int i = 0; i < args.length; ++i) {
+            if (i == args.length - 1 && !args[i].startsWith("-"))
+                filename = args[i];
+            else if (args[i].equals("-parallel"))
+                engine = ParallelSolver::new;
+            else if (args[i].equals("-astar"))
+                engine = () -> new AStarSolver(new BlockerChainHeuristic());
+            else if (args[i].equals("-external"))
+                engine = ExternalSolver::new;
+            else if (args[i].equals("-bidirectional"))
+                engine = () -> new BidirectionalSolver((start, visitor) -> ((JamConfig) start).forEachGoal(visitor));
+            else if (args[i].equals("-pdb") && i + 3 < args.length
+                    && (args[i + 1].equals("max") || args[i + 1].equals("additive"))) {
+                boolean additive = args[++i].equals("additive");
+                Path directory = Path.of(args[++i]);
+                engine = () -> new AStarSolver(new PatternHeuristic(directory, additive));
+            }
+            else if (args[i].equals("-distributed") && i + 2 < args.length) {
+                int workers = Integer.parseInt(args[++i]);
+                engine = () -> new DistributedSolver(workers, JamWorker.class.getName(),
+                        start -> JamPuzzle.of((JamConfig) start).format());
+            }
+            else if (args[i].equals("-bitmap"))
+                engine = () -> new BitmapSolver(start -> new JamRanker((JamConfig) start));
+            else if (args[i].equals("-table"))
+                table = true;
+            else if (args[i].equals("-stats"))
+                stats = true;
+            else if (args[i].equals("-boards"))
+                boards = true;
+            else if (args[i].equals("-frontier") && i + 2 < args.length && makeFrontier(args[i + 1]) != null)
+                frontier = makeFrontier(args[++i]);
+            else if (args[i].equals("-states") && i + 2 < args.length)
+                maxStates = Long.parseLong(args[++i]);
+            else if (args[i].equals("-memory") && i + 2 < args.length)
+                maxBytes = Long.parseLong(args[++i]) << 20;
+            else if (args[i].equals("-seconds") && i + 2 < args.length)
+                maxMillis = Long.parseLong(args[++i]) * 1000;
+            else if ((args[i].equals("-checkpoint") || args[i].equals("-resume")) && i + 2 < args.length) {
+                resume = args[i].equals("-resume");
+                checkpoint = Path.of(args[++i]);
+            }
+            else if (args[i].equals("-batch") && i + 1 < args.length) {
+                batch = Arrays.asList(args).subList(i + 1, args.length);
+                break;
+            }
+            else if (args[i].equals("-pack") && i + 2 < args.length) {
+                pack = Arrays.asList(args).subList(i + 1, args.length);
+                break;
+            }
+            else
+                break;
+        }
+        Supplier<Solver> solvers = makeSolvers(engine, frontier, new SearchBudget(maxStates, maxBytes, maxMillis));
 
+        if (batch != null) {
+            try {
+                if (batch.size() == 1 && batch.get(0).endsWith(JamPack.SUFFIX))
+                    new JamBatch(solvers).run(JamPack.load(Path.of(batch.get(0))), System.out);
+                else
+                    new JamBatch(solvers).run(JamBatch.findPuzzles(batch), System.out);
+            } catch (IOException e) {
+                System.out.println("Cannot read puzzles: " + e.getMessage());
+            }
+        } else if (pack != null) {
+            writePack(pack.get(0), pack.subList(1, pack.size()));
+        } else if (filename == null) {
+            System.out.println("Usage: java Jam [-parallel | -astar | -pdb max|additive directory | -external | -bitmap " +
+                    "| -bidirectional | -distributed workers | -table] [-stats] [-boards] " +
+                    "[-frontier ring | bucket | layered] [-checkpoint | -resume file] [-states count] [-memory MB] " +
+                    "[-seconds seconds] filename");
+            System.out.println("       java Jam [-parallel | -astar | -pdb max|additive directory | -external | -bitmap " +
+                    "| -bidirectional | -distributed workers] [-states count] [-memory MB] [-seconds seconds] -batch directory | glob | pack ...");
+            System.out.println("       java Jam -pack pack directory | glob ...");
+            System.out.println("-bidirectional only pays off on puzzles with few solved configs; " +
+                    "every one of them is visited before the search starts");
+        } else if (table) {
+            writeTable(filename);
+        } else {
             System.out.println("File: " + filename);
 
             JamConfig jam = new JamConfig(filename);
             System.out.print(jam);
 
-            Solver solver = new Solver();
-            List<Configuration> steps = (List<Configuration>) solver.solve(jam);
+            Solver solver = solvers.get();
+            if (checkpoint != null) {
+                // a breadth first search picks up from the checkpoint if there is one
+                if (Files.exists(checkpoint))
+                    System.out.println("Resuming from " + checkpoint);
+                else if (resume) {
+                    System.out.println("No checkpoint: " + checkpoint);
+                    return;
+                }
+                solver.setCheckpoint(checkpoint, CHECKPOINT_MILLIS, start -> JamPuzzle.of((JamConfig) start).format());
+            }
+            List<Configuration> steps;
+            try {
+                steps = (List<Configuration>) solver.solve(jam);
+            } catch (BudgetExceededException e) {
+                System.out.println(e.getMessage());
+                System.out.print(e.getMetrics().summary());
+                if (checkpoint != null && Files.exists(checkpoint))
+                    System.out.println("Checkpoint kept: " + checkpoint);
+                return;
+            } catch (UncheckedIOException | IllegalStateException e) {
+                System.out.println(e.getMessage());
+                return;
+            }
 
             System.out.println("Total Configs: " + solver.totalCounter);
             System.out.println("Unique Configs: " + solver.uniqueCounter);
 
-            if (steps.isEmpty())
-                System.out.println("No Solution");
+            if (stats)
+                System.out.print(solver.getMetrics().summary());
+
+            try {
+                Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+                writeSolution(steps, boards, out);
+                out.flush();
+            } catch (IOException e) {
+                System.err.println("Failed to write solution: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes a solution as moves, or as every board along the way
+     *
+     * @param steps configs from the start to the solution; empty if none
+     * @param boards true for every board; false for move notation
+     * @param out where the solution goes
+     * @throws IOException if out cannot be written
+     */
+    private static void writeSolution(List<Configuration> steps, boolean boards, Writer out) throws IOException {
+        if (steps.isEmpty()) {
+            out.write("No Solution\n");
+        } else if (boards) {
             for (int i = 0; i < steps.size(); ++i)
-                System.out.println("Step " + i + ":\n" + steps.get(i).toString());
+                out.append("Step ").append(Integer.toString(i)).append(":\n").append(steps.get(i).toString()).append('\n');
+        } else {
+            out.append("Moves: ").append(Integer.toString(steps.size() - 1)).append('\n');
+            JamMoves.write(steps, out);
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Wraps an engine so each solver it makes has a budget. One that
+     * runs out of states or memory goes on with IDA*, which gets
+     * FALLBACK_MILLIS if the budget has no time limit of its own; one
+     * that runs out of time stops.
+     *
+     * @param engine makes the solver
+     * @param frontier makes the queue of a breadth first search
+     * @param budget limits on each search
+     * @return maker of budgeted solvers
+     */
+    private static Supplier<Solver> makeSolvers(Supplier<Solver> engine, Supplier<Frontier> frontier,
+                                                SearchBudget budget) {
+        return () -> {
+            Solver solver = engine.get();
+            solver.setFrontier(frontier);
+            if (budget.getMaxStates() != Long.MAX_VALUE || budget.getMaxBytes() != Long.MAX_VALUE) {
+                Solver fallback = new IDAStarSolver(new BlockerChainHeuristic());
+                long millis = budget.getMaxMillis() != Long.MAX_VALUE ? budget.getMaxMillis() : FALLBACK_MILLIS;
+                fallback.setBudget(new SearchBudget(Long.MAX_VALUE, Long.MAX_VALUE, millis));
+                solver.setFallback(fallback);
+            }
+            solver.setBudget(budget);
+            return solver;
+        };
+    }
+
+    /**
+     * @param kind ring, bucket or layered
+     * @return maker of that kind of frontier; null if there is none
+     */
+    private static Supplier<Frontier> makeFrontier(String kind) {
+        switch (kind) {
+            case "ring":
+                return RingFrontier::new;
+            case "bucket":
+                return BucketFrontier::new;
+            case "layered":
+                return LayeredFrontier::new;
+            default:
+                return null;
+        }
+    }
 
+    /**
+     * Packs puzzle files into one JamPack for batch runs
+     *
+     * @param packFile the pack to write
+     * @param targets directories, globs or filenames of the puzzles
+     */
+    private static void writePack(String packFile, List<String> targets) {
+        try {
+            List<Path> puzzles = JamBatch.findPuzzles(targets);
+            JamPack.convert(puzzles, Path.of(packFile));
+            System.out.println("Packed " + puzzles.size() + " puzzles into " + packFile);
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Failed to pack: " + e.getMessage());
+        }
+    }
 
+    /**
+     * Builds the distance table of a puzzle next to it, which the PTUI
+     * and GUI then use for instant hints
+     *
+     * @param filename the puzzle filename
+     * @throws FileNotFoundException if file not found
+     */
+    private static void writeTable(String filename) throws FileNotFoundException {
+        JamConfig jam = new JamConfig(filename);
+        DistanceTable table = DistanceTable.build(jam);
+        String tableFile = filename + JamHinter.TABLE_SUFFIX;
+        try {
+            table.write(Path.of(tableFile));
+        } catch (IOException e) {
+            System.out.println("Failed to write: " + tableFile);
+            return;
         }
+
+        int distance = table.distance(jam);
+        System.out.println("Table: " + tableFile);
+        System.out.println("Unique Configs: " + table.size());
+        System.out.println(distance == DistanceTable.UNSOLVABLE ? "No Solution" : "Moves: " + distance);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,212 @@
+package puzzles.jam.solver;
+
+import puzzles.common.solver.BudgetExceededException;
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Solver;
+import puzzles.jam.model.JamConfig;
+import puzzles.jam.model.JamMoves;
+import puzzles.jam.model.JamPack;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Solves many puzzles at once for java Jam -batch. Puzzles run on a
+ * work-stealing pool with a thread per core and each gets a solver of
+ * its own; a ParallelSolver expands its layers on the same pool. A line
+ * is printed per puzzle as soon as it is done, so a slow puzzle does not
+ * hold back the others, followed by totals. A line ends with the solution
+ * in move notation. The puzzles are files or the puzzles of a JamPack.
+ */
+public class JamBatch {
+    /** puzzle files of a directory */
+    private final static String PUZZLE_GLOB = "*.txt";
+
+    /** makes a fresh solver for each puzzle */
+    private final Supplier<Solver> solvers;
+
+    /** number of worker threads */
+    private final int parallelism;
+
+    /**
+     * Constructor
+     * uses one thread per available core
+     *
+     * @param solvers makes a fresh solver for each puzzle
+     */
+    public JamBatch(Supplier<Solver> solvers){
+        this(solvers, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param solvers makes a fresh solver for each puzzle
+     * @param parallelism number of worker threads
+     */
+    public JamBatch(Supplier<Solver> solvers, int parallelism){
+        this.solvers = solvers;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Finds the puzzle files named by directories, globs or filenames.
+     * A directory stands for its *.txt files; a glob may only use
+     * wildcards in its last part, as in data/jam/jam-1*.txt
+     *
+     * @param targets directories, globs or filenames
+     * @return puzzle files in the order given, each directory or glob sorted
+     * @throws IOException if a directory cannot be listed
+     */
+    public static List<Path> findPuzzles(List<String> targets) throws IOException {
+        List<Path> puzzles = new ArrayList<>();
+        for (String target : targets) {
+            Path path = Path.of(target);
+            String glob = PUZZLE_GLOB;
+            if (!Files.isDirectory(path)) {
+                if (!target.contains("*") && !target.contains("?") && !target.contains("[")) {
+                    puzzles.add(path);
+                    continue;
+                }
+                glob = path.getFileName().toString();
+                path = path.getParent() == null ? Path.of(".") : path.getParent();
+            }
+
+            PathMatcher matcher = path.getFileSystem().getPathMatcher("glob:" + glob);
+            try (Stream<Path> files = Files.list(path)) {
+                files.filter(file -> Files.isRegularFile(file) && matcher.matches(file.getFileName()))
+                        .sorted()
+                        .forEach(puzzles::add);
+            }
+        }
+        return puzzles;
+    }
+
+    /**
+     * Solves every puzzle, printing a line for each as it finishes and
+     * totals at the end
+     *
+     * @param puzzles puzzle files
+     * @param out where the lines go
+     */
+    public void run(List<Path> puzzles, PrintStream out){
+        run(puzzles.size(), n -> puzzles.get(n).toString(), n -> new JamConfig(puzzles.get(n).toString()), out);
+    }
+
+    /**
+     * Solves every puzzle of a pack, printing a line for each as it
+     * finishes and totals at the end
+     *
+     * @param pack the pack
+     * @param out where the lines go
+     */
+    public void run(JamPack pack, PrintStream out){
+        run(pack.size(), pack::getName, pack::getConfig, out);
+    }
+
+    /**
+     * Reads the start of puzzle n
+     */
+    private interface Source {
+        JamConfig load(int n) throws IOException;
+    }
+
+    private void run(int count, IntFunction<String> names, Source source, PrintStream out){
+        ExecutorService pool = Executors.newWorkStealingPool(parallelism);
+        CompletionService<Result> done = new ExecutorCompletionService<>(pool);
+        long start = System.nanoTime();
+        try {
+            for (int n = 0; n < count; ++n) {
+                int puzzle = n;
+                done.submit(() -> solve(names.apply(puzzle), () -> source.load(puzzle)));
+            }
+
+            int solved = 0;
+            int failed = 0;
+            long expanded = 0;
+            for (int i = 0; i < count; ++i) {
+                Result result = done.take().get();
+                out.println(result);
+                if (result.error != null)
+                    failed++;
+                else if (result.moves >= 0)
+                    solved++;
+                expanded += result.expanded;
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            out.printf("Puzzles: %d  Solved: %d  No Solution: %d  Failed: %d%n",
+                    count, solved, count - solved - failed, failed);
+            out.printf("Time: %.2f s  (%.1f puzzles/s, %.0f configs expanded/s)%n",
+                    seconds, count / seconds, expanded / seconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // solve reports its own failures, so this is a bug
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Solves one puzzle
+     *
+     * @param puzzle name of the puzzle
+     * @param config reads the start of the puzzle
+     * @return what happened
+     */
+    private Result solve(String puzzle, Callable<JamConfig> config){
+        long start = System.nanoTime();
+        Solver solver = solvers.get();
+        try {
+            List<Configuration> steps = (List<Configuration>) solver.solve(config.call());
+            Result result = new Result(puzzle, steps.size() - 1, solver.getMetrics().expanded(), solver.uniqueCounter,
+                    System.nanoTime() - start, null);
+            result.solution = String.join(" ", JamMoves.fromSteps(steps));
+            return result;
+        } catch (BudgetExceededException e) {
+            return new Result(puzzle, -1, e.getMetrics().expanded(), e.getMetrics().peakVisited(),
+                    System.nanoTime() - start, e.getMessage());
+        } catch (Exception e) {
+            return new Result(puzzle, -1, 0, 0, System.nanoTime() - start, e.toString());
+        }
+    }
+
+    /**
+     * The outcome of one puzzle
+     */
+    private static class Result {
+        private final String puzzle;
+        private final int moves;
+        private final long expanded;
+        private final long unique;
+        private final long nanos;
+        private final String error;
+        private String solution = "";
+
+        Result(String puzzle, int moves, long expanded, long unique, long nanos, String error) {
+            this.puzzle = puzzle;
+            this.moves = moves;
+            this.expanded = expanded;
+            this.unique = unique;
+            this.nanos = nanos;
+            this.error = error;
+        }
+
+        // one line, e.g. "data/jam/jam-1.txt  moves=3  expanded=3  unique=4  ms=1  A+1 X+2"
+        @Override
+        public String toString() {
+            String outcome = error != null ? error : moves < 0 ? "No Solution" : "moves=" + moves;
+            return String.format("%s  %s  expanded=%d  unique=%d  ms=%d  %s",
+                    puzzle, outcome, expanded, unique, nanos / 1_000_000, solution).stripTrailing();
+        }
+    }
+}
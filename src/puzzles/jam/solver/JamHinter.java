@@ -0,0 +1,111 @@
+package puzzles.jam.solver;
+
+import puzzles.common.solver.AStarSolver;
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.DistanceTable;
+import puzzles.common.solver.IDAStarSolver;
+import puzzles.common.solver.SearchBudget;
+import puzzles.common.solver.Solver;
+import puzzles.jam.model.JamConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the next move for the PTUI and GUI hints.
+ * If a distance table has been built next to the puzzle file
+ * (java Jam -table filename) a hint is a lookup in it.
+ * Otherwise a hint searches from the current board and keeps the whole
+ * path, so later hints from any config on it need no new search.
+ */
+public class JamHinter {
+    /** appended to a puzzle filename to name its distance table */
+    public final static String TABLE_SUFFIX = ".dist";
+
+    /** longest a hint may search, fallback included */
+    public final static long HINT_MILLIS = 30_000;
+
+    /** distance table of the puzzle; null if there is none */
+    private DistanceTable table;
+
+    /** next step from each config on the last solution path */
+    private final Map<JamConfig, JamConfig> path = new HashMap<>();
+
+    /**
+     * Constructor
+     * maps the puzzle's distance table if there is an up to date one
+     *
+     * @param filename the puzzle filename
+     */
+    public JamHinter(String filename){
+        File puzzle = new File(filename);
+        File tableFile = new File(filename + TABLE_SUFFIX);
+        if (tableFile.isFile() && tableFile.lastModified() >= puzzle.lastModified()) {
+            try {
+                this.table = DistanceTable.load(tableFile.toPath());
+            } catch (IOException e) {
+                System.err.println("Ignoring distance table: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Finds the next config on a shortest path to a solution
+     *
+     * @param config the current config
+     * @return next config; null if there is no solution
+     * @throws puzzles.common.solver.BudgetExceededException if the
+     * search takes longer than HINT_MILLIS
+     */
+    public JamConfig nextStep(JamConfig config){
+        return nextStep(config, makeSolver());
+    }
+
+    /**
+     * Builds the solver for a hint search: A* until it holds half the
+     * heap, then IDA*, which holds next to nothing, so a huge custom
+     * board cannot run the session out of memory. Both together stop
+     * after HINT_MILLIS, so a hint on a huge or unsolvable board does
+     * not hang the session.
+     *
+     * @return the solver
+     */
+    public static Solver makeSolver(){
+        Solver solver = new AStarSolver(new BlockerChainHeuristic());
+        solver.setBudget(new SearchBudget(Long.MAX_VALUE, Runtime.getRuntime().maxMemory() / 2, HINT_MILLIS));
+        solver.setFallback(new IDAStarSolver(new BlockerChainHeuristic()));
+        return solver;
+    }
+
+    /**
+     * Finds the next config on a shortest path to a solution, searching
+     * with a given solver if the table and the last path cannot answer.
+     * Callers on another thread can watch the solver's metrics and
+     * cancel it; a cancelled search leaves the last path as it was.
+     *
+     * @param config the current config
+     * @param solver solver for a new search
+     * @return next config; null if there is no solution
+     * @throws java.util.concurrent.CancellationException if the solver
+     * is cancelled during the search
+     */
+    public synchronized JamConfig nextStep(JamConfig config, Solver solver){
+        if (table != null && table.distance(config) >= 0)
+            return (JamConfig) table.nextStep(config);
+
+        // still on the last path
+        JamConfig next = path.get(config);
+        if (next != null)
+            return next;
+
+        // left the path; solve again and keep the new path instead
+        List<Configuration> steps = (List<Configuration>) solver.solve(config);
+        path.clear();
+        for (int i = 0; i + 1 < steps.size(); ++i)
+            path.put((JamConfig) steps.get(i), (JamConfig) steps.get(i + 1));
+        return path.get(config);
+    }
+}
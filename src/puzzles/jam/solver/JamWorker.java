@@ -0,0 +1,17 @@
+package puzzles.jam.solver;
+
+import puzzles.common.solver.DistributedWorker;
+import puzzles.jam.model.JamConfig;
+import puzzles.jam.model.JamPuzzle;
+
+import java.io.IOException;
+
+/**
+ * Worker process of java Jam -distributed; started by the coordinator
+ * with the port to connect back to.
+ */
+public class JamWorker {
+    public static void main(String[] args) throws IOException {
+        DistributedWorker.run(Integer.parseInt(args[0]), puzzle -> new JamConfig(JamPuzzle.parse(puzzle)));
+    }
+}
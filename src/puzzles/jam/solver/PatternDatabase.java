@@ -0,0 +1,350 @@
+package puzzles.jam.solver;
+
+import puzzles.jam.model.JamConfig;
+import puzzles.jam.model.JamLayout;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Moves to the goal of every placement of X and a few other cars with
+ * the rest of the cars taken off the board. Taking cars away only makes
+ * moves easier, so a distance here never exceeds the real one from any
+ * config that puts those cars in the same places.
+ *
+ * The distances are found by breadth first search back from every
+ * placement with X at the goal, each layer expanded by all cores, and
+ * kept one byte per placement. A placement's index is the position of
+ * each of its cars as a digit of a mixed-radix number, so a lookup is a
+ * few multiplications. A database that does not count X's moves can be
+ * added to one that does, as no move is then counted twice.
+ *
+ * On disk a database is a header describing the cars it was built for
+ * and the distances; a loaded database is memory-mapped.
+ */
+public class PatternDatabase {
+    /** distance of a placement that cannot reach the goal */
+    public final static int UNREACHED = 0xFF;
+
+    /** most placements a database may have */
+    public final static int MAX_SIZE = 1 << 24;
+
+    /** first int of a database file */
+    private final static int MAGIC = 0x4A504442;
+
+    /** ints in the header before the cars and per car */
+    private final static int HEADER_INTS = 5;
+    private final static int CAR_INTS = 4;
+
+    /** number of rows and columns of the board */
+    private final int rows;
+    private final int cols;
+
+    /** index in the layout of each car; the target first */
+    private final int[] cars;
+
+    /** orientation, length and lane of each car, which fix its moves */
+    private final boolean[] horizontal;
+    private final int[] lengths;
+    private final int[] lanes;
+
+    /** true if moves of the target are counted */
+    private final boolean countsTarget;
+
+    /** index step of one cell along each car's lane */
+    private final int[] strides;
+
+    /** bitboard of each car at each position along its lane */
+    private final long[][] masks;
+
+    /** distance of each placement */
+    private final ByteBuffer distances;
+
+    private PatternDatabase(int rows, int cols, int[] cars, boolean[] horizontal, int[] lengths, int[] lanes,
+                            boolean countsTarget, ByteBuffer distances){
+        this.rows = rows;
+        this.cols = cols;
+        this.cars = cars;
+        this.horizontal = horizontal;
+        this.lengths = lengths;
+        this.lanes = lanes;
+        this.countsTarget = countsTarget;
+        this.strides = new int[cars.length];
+        this.masks = new long[cars.length][];
+        int stride = 1;
+        for (int k = cars.length - 1; k >= 0; --k) {
+            strides[k] = stride;
+            masks[k] = new long[(horizontal[k] ? cols : rows) - lengths[k] + 1];
+            for (int pos = 0; pos < masks[k].length; ++pos)
+                for (int i = 0; i < lengths[k]; ++i)
+                    masks[k][pos] |= horizontal[k] ? 1L << (lanes[k] * 8 + pos + i) : 1L << ((pos + i) * 8 + lanes[k]);
+            stride *= masks[k].length;
+        }
+        this.distances = distances;
+    }
+
+    /**
+     * Number of placements of the target and some cars of a layout
+     *
+     * @param layout the layout
+     * @param cars indices of the cars other than the target
+     * @return number of placements; more than MAX_SIZE if too many
+     */
+    public static long size(JamLayout layout, int[] cars){
+        long size = layout.maxPosition(layout.getTarget()) + 1;
+        for (int car : cars) {
+            size *= layout.maxPosition(car) + 1;
+            if (size > MAX_SIZE)
+                return MAX_SIZE + 1L;
+        }
+        return size;
+    }
+
+    /**
+     * Solves every placement of the target and some other cars
+     *
+     * @param layout the layout
+     * @param cars indices of the cars other than the target
+     * @param countsTarget true to count moves of the target
+     * @return the database
+     * @throws IllegalArgumentException if the layout has no horizontal
+     * target or there are more than MAX_SIZE placements
+     */
+    public static PatternDatabase build(JamLayout layout, int[] cars, boolean countsTarget){
+        int target = layout.getTarget();
+        if (target < 0 || !layout.isHorizontal(target))
+            throw new IllegalArgumentException("Pattern databases need a horizontal " + JamLayout.TARGET);
+        if (size(layout, cars) > MAX_SIZE)
+            throw new IllegalArgumentException("More than " + MAX_SIZE + " placements of " + Arrays.toString(cars));
+
+        int[] all = new int[cars.length + 1];
+        all[0] = target;
+        System.arraycopy(cars, 0, all, 1, cars.length);
+        boolean[] horizontal = new boolean[all.length];
+        int[] lengths = new int[all.length];
+        int[] lanes = new int[all.length];
+        for (int k = 0; k < all.length; ++k) {
+            horizontal[k] = layout.isHorizontal(all[k]);
+            lengths[k] = layout.getLength(all[k]);
+            lanes[k] = layout.getLane(all[k]);
+        }
+        byte[] distances = new byte[(int) size(layout, cars)];
+        PatternDatabase database = new PatternDatabase(layout.getRows(), layout.getCols(), all, horizontal, lengths,
+                lanes, countsTarget, ByteBuffer.wrap(distances));
+        database.solve(distances);
+        return database;
+    }
+
+    /**
+     * Breadth first search back from every placement with the target at
+     * the goal. A layer first takes in everything its free moves reach,
+     * then the next layer is everything one counted move away; within a
+     * step all writes are the same value, so threads never disagree.
+     */
+    private void solve(byte[] distances){
+        Arrays.fill(distances, (byte) UNREACHED);
+        int goal = cols - lengths[0];
+        IntStream.range(0, distances.length).parallel().forEach(index -> {
+            if (occupancy(index) != -1 && digit(index, 0) == goal)
+                distances[index] = 0;
+        });
+
+        for (int depth = 0; ; ++depth) {
+            if (depth == UNREACHED - 1)
+                throw new IllegalStateException("Pattern distances do not fit in a byte");
+            int layer = depth;
+            while (IntStream.range(0, distances.length).parallel()
+                    .map(index -> expand(distances, index, layer, false)).sum() > 0) {
+                // free moves until nothing more is reached at this depth
+            }
+            if (IntStream.range(0, distances.length).parallel()
+                    .map(index -> expand(distances, index, layer, true)).sum() == 0)
+                break;
+        }
+    }
+
+    /**
+     * Reaches the unreached neighbors of a placement at a depth
+     *
+     * @param distances distance of each placement
+     * @param index the placement
+     * @param depth the depth being expanded
+     * @param counted true for moves that are counted, which reach depth
+     *                + 1; false for free ones, which reach depth
+     * @return number of placements reached
+     */
+    private int expand(byte[] distances, int index, int depth, boolean counted){
+        if ((distances[index] & 0xFF) != depth)
+            return 0;
+        long occupied = occupancy(index);
+        int reached = 0;
+        for (int k = 0; k < cars.length; ++k) {
+            if ((k != 0 || countsTarget) != counted)
+                continue;
+            int pos = digit(index, k);
+            for (int dir = -1; dir <= 1; dir += 2) {
+                int to = pos + dir;
+                if (to < 0 || to >= masks[k].length || (occupied & ~masks[k][pos] & masks[k][to]) != 0)
+                    continue;
+                int neighbor = index + dir * strides[k];
+                if (distances[neighbor] == (byte) UNREACHED) {
+                    distances[neighbor] = (byte) (counted ? depth + 1 : depth);
+                    reached++;
+                }
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * Maps a database written by write, checking it was built for the
+     * same cars of a layout
+     *
+     * @param file the database file
+     * @param layout the layout it is for
+     * @return the database
+     * @throws IOException if the file cannot be read, is not a database
+     * or was built for other cars
+     */
+    public static PatternDatabase load(Path file, JamLayout layout) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_INTS * Integer.BYTES || buffer.getInt(0) != MAGIC)
+                throw new IOException("Not a pattern database: " + file);
+            int rows = buffer.getInt(4);
+            int cols = buffer.getInt(8);
+            boolean countsTarget = buffer.getInt(12) != 0;
+            int count = buffer.getInt(16);
+            int header = (HEADER_INTS + count * CAR_INTS) * Integer.BYTES;
+            if (count < 1 || count > layout.size() || buffer.capacity() < header)
+                throw new IOException("Truncated pattern database: " + file);
+
+            int[] cars = new int[count];
+            boolean[] horizontal = new boolean[count];
+            int[] lengths = new int[count];
+            int[] lanes = new int[count];
+            for (int k = 0; k < count; ++k) {
+                int at = (HEADER_INTS + k * CAR_INTS) * Integer.BYTES;
+                cars[k] = buffer.getInt(at);
+                horizontal[k] = buffer.getInt(at + 4) != 0;
+                lengths[k] = buffer.getInt(at + 8);
+                lanes[k] = buffer.getInt(at + 12);
+            }
+            PatternDatabase database = new PatternDatabase(rows, cols, cars, horizontal, lengths, lanes,
+                    countsTarget, buffer.position(header).slice());
+            if (!database.fits(layout) || cars[0] != layout.getTarget())
+                throw new IOException("Pattern database " + file + " was built for other cars");
+            if (database.distances.capacity() != size(layout, Arrays.copyOfRange(cars, 1, count)))
+                throw new IOException("Truncated pattern database: " + file);
+            return database;
+        }
+    }
+
+    /**
+     * Writes the database so it can be mapped by load. It is written
+     * to a temporary file that then replaces the database file, so a
+     * mapping of an older file stays valid and nobody maps half a file.
+     *
+     * @param file the database file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            writeTo(temp);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void writeTo(Path file) throws IOException {
+        try (OutputStream stream = Files.newOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(MAGIC);
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeInt(countsTarget ? 1 : 0);
+            out.writeInt(cars.length);
+            for (int k = 0; k < cars.length; ++k) {
+                out.writeInt(cars[k]);
+                out.writeInt(horizontal[k] ? 1 : 0);
+                out.writeInt(lengths[k]);
+                out.writeInt(lanes[k]);
+            }
+            for (int i = 0; i < distances.capacity(); ++i)
+                out.writeByte(distances.get(i));
+        }
+    }
+
+    /**
+     * @param layout a layout
+     * @return true if this database's cars are at the same indices of
+     * the layout and move the same way there
+     */
+    public boolean fits(JamLayout layout){
+        if (layout.getRows() != rows || layout.getCols() != cols)
+            return false;
+        for (int k = 0; k < cars.length; ++k) {
+            int car = cars[k];
+            if (car >= layout.size() || layout.isHorizontal(car) != horizontal[k]
+                    || layout.getLength(car) != lengths[k] || layout.getLane(car) != lanes[k])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return true if moves of the target are counted
+     */
+    public boolean countsTarget(){
+        return countsTarget;
+    }
+
+    /**
+     * @return number of placements
+     */
+    public int size(){
+        return distances.capacity();
+    }
+
+    /**
+     * @param config a config of a layout the database fits
+     * @return lower bound on the moves it needs; UNREACHED if it cannot
+     * reach the goal at all
+     */
+    public int distance(JamConfig config){
+        int index = 0;
+        for (int k = 0; k < cars.length; ++k)
+            index += config.getPosition(cars[k]) * strides[k];
+        return distances.get(index) & 0xFF;
+    }
+
+    /** position of car k in a placement */
+    private int digit(int index, int k){
+        return index / strides[k] % masks[k].length;
+    }
+
+    /** cells covered in a placement; -1 if two cars overlap */
+    private long occupancy(int index){
+        long occupied = 0;
+        for (int k = 0; k < cars.length; ++k) {
+            long mask = masks[k][digit(index, k)];
+            if ((occupied & mask) != 0)
+                return -1;
+            occupied |= mask;
+        }
+        return occupied;
+    }
+}
@@ -0,0 +1,208 @@
+package puzzles.jam.solver;
+
+import puzzles.common.solver.Configuration;
+import puzzles.common.solver.Heuristic;
+import puzzles.jam.model.JamConfig;
+import puzzles.jam.model.JamLayout;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimate from pattern databases over groups of cars, built the first
+ * time a layout is seen and kept in a directory, so later runs on a
+ * layout with the same cars map them instead. Each group is as big as
+ * the group size allows, filled with the cars most likely to be in X's
+ * way first.
+ *
+ * With max, every database counts X's moves and the estimate is the
+ * largest of their distances. With additive, only the first counts X's
+ * moves and the estimate is their sum, since no move is counted twice;
+ * that is usually the stronger of the two.
+ */
+public class PatternHeuristic implements Heuristic {
+    /** default most placements per database */
+    public final static int DEFAULT_GROUP_SIZE = 1 << 20;
+
+    /** one lock per database file, so threads of a batch build each once */
+    private final static Map<Path, Object> locks = new ConcurrentHashMap<>();
+
+    /** where databases are kept; null to build them every time */
+    private final Path directory;
+
+    /** true to add the databases; false to take the largest */
+    private final boolean additive;
+
+    /** most placements per database */
+    private final int groupSize;
+
+    /** layout the databases were built for, and the databases */
+    private JamLayout layout;
+    private PatternDatabase[] databases;
+
+    /**
+     * Constructor
+     * uses databases of at most DEFAULT_GROUP_SIZE placements
+     *
+     * @param directory where databases are kept; null to keep none
+     * @param additive true to add the databases; false to take the largest
+     */
+    public PatternHeuristic(Path directory, boolean additive){
+        this(directory, additive, DEFAULT_GROUP_SIZE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param directory where databases are kept; null to keep none
+     * @param additive true to add the databases; false to take the largest
+     * @param groupSize most placements per database, at most
+     *                  PatternDatabase.MAX_SIZE
+     */
+    public PatternHeuristic(Path directory, boolean additive, int groupSize){
+        if (groupSize > PatternDatabase.MAX_SIZE)
+            throw new IllegalArgumentException("Groups of at most " + PatternDatabase.MAX_SIZE + " placements");
+        this.directory = directory;
+        this.additive = additive;
+        this.groupSize = groupSize;
+    }
+
+    @Override
+    public int estimate(Configuration config) {
+        JamConfig jam = (JamConfig) config;
+        int x = jam.getLayout().getTarget();
+        if (x < 0 || !jam.getLayout().isHorizontal(x))
+            return 0;
+
+        int estimate = 0;
+        for (PatternDatabase database : databasesFor(jam.getLayout())) {
+            int distance = database.distance(jam);
+            estimate = additive ? estimate + distance : Math.max(estimate, distance);
+        }
+        return estimate;
+    }
+
+    /**
+     * Maps or builds the databases of a layout
+     *
+     * @param layout the layout
+     * @return its databases
+     * @throws UncheckedIOException if a database cannot be written
+     */
+    private synchronized PatternDatabase[] databasesFor(JamLayout layout){
+        if (layout.equals(this.layout))
+            return databases;
+
+        List<int[]> groups = groups(layout, groupSize);
+        PatternDatabase[] databases = new PatternDatabase[groups.size()];
+        for (int i = 0; i < databases.length; ++i)
+            databases[i] = databaseFor(layout, groups.get(i), i == 0 || !additive);
+        this.layout = layout;
+        this.databases = databases;
+        return databases;
+    }
+
+    /**
+     * Maps a database from the directory, building and writing it if it
+     * is not there, cannot be read or is for other cars
+     */
+    private PatternDatabase databaseFor(JamLayout layout, int[] cars, boolean countsTarget){
+        if (directory == null)
+            return PatternDatabase.build(layout, cars, countsTarget);
+
+        Path file = directory.resolve(fileName(layout, cars, countsTarget)).toAbsolutePath();
+        synchronized (locks.computeIfAbsent(file, f -> new Object())) {
+            if (Files.isRegularFile(file)) {
+                try {
+                    PatternDatabase database = PatternDatabase.load(file, layout);
+                    if (database.countsTarget() == countsTarget && database.size() == PatternDatabase.size(layout, cars))
+                        return database;
+                } catch (IOException e) {
+                    // rebuilt below
+                }
+            }
+
+            PatternDatabase database = PatternDatabase.build(layout, cars, countsTarget);
+            try {
+                Files.createDirectories(directory);
+                database.write(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write pattern database " + file, e);
+            }
+            return database;
+        }
+    }
+
+    /**
+     * Splits the cars other than X into groups, each with at most
+     * groupSize placements together with X. Vertical cars nearest the
+     * exit and horizontal cars nearest X's row come first, taken in turn,
+     * since a vertical car in X's way is held there by the horizontal
+     * cars next to X's row.
+     *
+     * @param layout the layout
+     * @param groupSize most placements per group
+     * @return groups of car indices; one empty group if X is the only car
+     */
+    public static List<int[]> groups(JamLayout layout, int groupSize){
+        int x = layout.getTarget();
+        List<Integer> vertical = new ArrayList<>();
+        for (int col = layout.getCols() - 1; col >= 0; --col)
+            for (int car = 0; car < layout.size(); ++car)
+                if (car != x && !layout.isHorizontal(car) && layout.getLane(car) == col)
+                    vertical.add(car);
+        List<Integer> horizontal = new ArrayList<>();
+        for (int away = 0; away < layout.getRows(); ++away)
+            for (int car = 0; car < layout.size(); ++car)
+                if (car != x && layout.isHorizontal(car) && Math.abs(layout.getLane(car) - layout.getLane(x)) == away)
+                    horizontal.add(car);
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < Math.max(vertical.size(), horizontal.size()); ++i) {
+            if (i < vertical.size())
+                order.add(vertical.get(i));
+            if (i < horizontal.size())
+                order.add(horizontal.get(i));
+        }
+
+        List<int[]> groups = new ArrayList<>();
+        int[] group = new int[0];
+        for (int car : order) {
+            int[] bigger = Arrays.copyOf(group, group.length + 1);
+            bigger[group.length] = car;
+            if (group.length > 0 && PatternDatabase.size(layout, bigger) > groupSize) {
+                groups.add(group);
+                bigger = new int[]{ car };
+            }
+            group = bigger;
+        }
+        groups.add(group);
+        return groups;
+    }
+
+    /**
+     * Names a database file after the cars it is for, so layouts that
+     * share them share it
+     */
+    private static String fileName(JamLayout layout, int[] cars, boolean countsTarget){
+        int[] spec = new int[3 + 4 * (cars.length + 1)];
+        spec[0] = layout.getRows();
+        spec[1] = layout.getCols();
+        spec[2] = countsTarget ? 1 : 0;
+        for (int k = 0; k <= cars.length; ++k) {
+            int car = k == 0 ? layout.getTarget() : cars[k - 1];
+            spec[3 + 4 * k] = car;
+            spec[4 + 4 * k] = layout.isHorizontal(car) ? 1 : 0;
+            spec[5 + 4 * k] = layout.getLength(car);
+            spec[6 + 4 * k] = layout.getLane(car);
+        }
+        return String.format("pdb-%08x.bin", Arrays.hashCode(spec));
+    }
+}